@@ -2,12 +2,16 @@ package com.example.libraryservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.core.Ordered;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 @EnableScheduling
 @EnableJpaAuditing
+//transakcja otacza MonitorMethodAspect, więc log trafia do outboxa razem ze zmianą domenową
+@EnableTransactionManagement(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class LibraryServiceApplication {
 
     public static void main(String[] args) {
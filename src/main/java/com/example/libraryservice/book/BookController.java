@@ -1,18 +1,25 @@
 package com.example.libraryservice.book;
 
+import com.example.libraryservice.book.command.BlockBooksCommand;
 import com.example.libraryservice.book.command.CreateBookCommand;
-import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.BookBlockResult;
 import com.example.libraryservice.book.model.BookDto;
+import com.example.libraryservice.book.model.BookImportReport;
+import com.example.libraryservice.book.model.BookSlice;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import static com.example.libraryservice.mapper.BookMapper.MAPPER;
+import java.io.InputStream;
+import java.time.LocalDate;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,11 +27,43 @@ import static com.example.libraryservice.mapper.BookMapper.MAPPER;
 public class BookController {
 
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
 
     @GetMapping()
     public Page<BookDto> findAll(@PageableDefault(size = 10) Pageable pageable) {
-        Page<Book> bookPage = bookService.findAll(pageable);
-        return bookPage.map(MAPPER::mapToDto);
+        return bookService.findPage(pageable);
+    }
+
+    @GetMapping("/{id}")
+    public BookDto findById(@PathVariable("id") int id) {
+        return bookService.findById(id);
+    }
+
+    @GetMapping("/cursor")
+    public BookSlice findSlice(@RequestParam(required = false) String after,
+                               @RequestParam(defaultValue = "10") int size) {
+        return bookService.findSlice(after, size);
+    }
+
+    @GetMapping("/available")
+    public Page<BookDto> findAvailable(@RequestParam String category,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                       @PageableDefault(size = 10, sort = "id") Pageable pageable) {
+        return bookService.findAvailable(category, from, to, pageable);
+    }
+
+    @GetMapping("/search")
+    public Page<BookDto> search(@RequestParam("q") String query, @PageableDefault(size = 10) Pageable pageable) {
+        return bookService.search(query, pageable);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.ok()
+                .contentType(BookExportService.APPLICATION_NDJSON)
+                .body(bookExportService::exportNdjson);
     }
 
     @PostMapping()
@@ -33,9 +72,26 @@ public class BookController {
         return new ResponseEntity<>(saved, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<BookImportReport> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        InputStream body) {
+        BookImportReport report = bookImportService.importBooks(body, contentType);
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
     @PatchMapping("/{id}/block")
     public ResponseEntity<Void> blockBookById(@PathVariable("id") int id) {
         bookService.blockBookById(id);
         return ResponseEntity.ok().build();
     }
+
+    @PatchMapping("/block")
+    public ResponseEntity<BookBlockResult> blockBooks(@RequestBody @Valid BlockBooksCommand command) {
+        return ResponseEntity.ok(bookService.changeBlockedStatus(command.getIds(), true));
+    }
+
+    @PatchMapping("/unblock")
+    public ResponseEntity<BookBlockResult> unblockBooks(@RequestBody @Valid BlockBooksCommand command) {
+        return ResponseEntity.ok(bookService.changeBlockedStatus(command.getIds(), false));
+    }
 }
@@ -0,0 +1,46 @@
+package com.example.libraryservice.book;
+
+import com.example.libraryservice.book.model.BookDto;
+import com.example.libraryservice.monitoring_logs.MonitorMethod;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@Service
+@RequiredArgsConstructor
+public class BookExportService {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    //każdy wiersz od razu trafia do strumienia odpowiedzi, więc zużycie pamięci nie zależy od rozmiaru katalogu
+    @MonitorMethod
+    public void exportNdjson(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BookDto.class);
+        BufferedOutputStream bufferedStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+
+        try {
+            bookJdbcRepository.streamAll(book -> {
+                try {
+                    bufferedStream.write(writer.writeValueAsBytes(book));
+                    bufferedStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        bufferedStream.flush();
+    }
+}
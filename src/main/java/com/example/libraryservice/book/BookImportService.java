@@ -0,0 +1,209 @@
+package com.example.libraryservice.book;
+
+import com.example.libraryservice.book.cache.BookCache;
+import com.example.libraryservice.book.command.CreateBookCommand;
+import com.example.libraryservice.book.model.BookImportReport;
+import com.example.libraryservice.book.search.BookSearchIndex;
+import com.example.libraryservice.common.exception.model.BookException;
+import com.example.libraryservice.monitoring_logs.MonitorMethod;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+//import katalogu strumieniowo (CSV / NDJSON) - w pamięci trzymamy tylko jedną paczkę wierszy
+@Service
+@RequiredArgsConstructor
+public class BookImportService {
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCache bookCache;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    @Value("${book.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${book.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @MonitorMethod
+    public BookImportReport importBooks(InputStream body, String contentType) {
+        boolean csv = isFormat(contentType, TEXT_CSV);
+        if (!csv && !isFormat(contentType, APPLICATION_NDJSON)) {
+            throw new BookException("UNSUPPORTED_IMPORT_FORMAT");
+        }
+
+        int maxIdBefore = bookJdbcRepository.findMaxId();
+        BookImportReport report = new BookImportReport();
+        List<CreateBookCommand> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (csv && header == null) {
+                    header = parseCsvHeader(line);
+                    continue;
+                }
+
+                CreateBookCommand command;
+                try {
+                    command = csv ? parseCsvRow(line, header) : objectMapper.readValue(line, CreateBookCommand.class);
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    reject(report, lineNumber, "MALFORMED_ROW");
+                    continue;
+                }
+
+                Set<ConstraintViolation<CreateBookCommand>> violations = validator.validate(command);
+                if (!violations.isEmpty()) {
+                    reject(report, lineNumber, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining("; ")));
+                    continue;
+                }
+
+                batch.add(command);
+                batchLines.add(lineNumber);
+                if (batch.size() >= batchSize) {
+                    flush(batch, batchLines, report);
+                }
+            }
+            flush(batch, batchLines, report);
+        } catch (IOException e) {
+            logger.error("Book import interrupted after {} rows", report.getImported(), e);
+            throw new BookException("IMPORT_STREAM_READ_ERROR");
+        } finally {
+            if (report.getImported() > 0) {
+                bookSearchIndex.indexFrom(maxIdBefore);
+                bookCache.evictListingsAfterInsert();
+            }
+        }
+
+        return report;
+    }
+
+    private void flush(List<CreateBookCommand> batch, List<Long> batchLines, BookImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            bookJdbcRepository.insertBatch(batch);
+            report.setImported(report.getImported() + batch.size());
+        } catch (DataAccessException batchException) {
+            //paczka wycofana w całości - ponawiamy wiersz po wierszu, żeby wskazać błędne linie
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    bookJdbcRepository.insertBatch(List.of(batch.get(i)));
+                    report.setImported(report.getImported() + 1);
+                } catch (DataAccessException rowException) {
+                    reject(report, batchLines.get(i), "ROW_REJECTED_BY_DATABASE");
+                }
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private void reject(BookImportReport report, long lineNumber, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new BookImportReport.RowError(lineNumber, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private boolean isFormat(String contentType, MediaType format) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return format.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Map<String, Integer> parseCsvHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> columns = parseCsvLine(line);
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!header.keySet().containsAll(List.of("title", "author", "category"))) {
+            throw new BookException("CSV_HEADER_MUST_CONTAIN_TITLE_AUTHOR_CATEGORY");
+        }
+        return header;
+    }
+
+    private CreateBookCommand parseCsvRow(String line, Map<String, Integer> header) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() < header.size()) {
+            throw new IllegalArgumentException("Too few columns");
+        }
+        CreateBookCommand command = new CreateBookCommand();
+        command.setTitle(fields.get(header.get("title")));
+        command.setAuthor(fields.get(header.get("author")));
+        command.setCategory(fields.get(header.get("category")));
+        Integer blockedColumn = header.get("blocked");
+        command.setBlocked(blockedColumn != null && Boolean.parseBoolean(fields.get(blockedColumn).trim()));
+        return command;
+    }
+
+    private List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.libraryservice.book;
+
+import com.example.libraryservice.book.command.CreateBookCommand;
+import com.example.libraryservice.book.model.BookDto;
+import com.example.libraryservice.common.jdbc.StreamingJdbc;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+//zapisy wsadowe z pominięciem Hibernate - Book.id jest IDENTITY, więc JPA nie potrafi ich grupować
+@Repository
+@RequiredArgsConstructor
+public class BookJdbcRepository {
+    private static final String INSERT_BOOK =
+            "INSERT INTO book (title, author, category, blocked, register_time, version) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_DIGEST_PENDING_BOOK =
+            "INSERT INTO digest_pending_book (category, title, author, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_ALL_BOOKS =
+            "SELECT id, title, author, category, blocked, register_time FROM book ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StreamingJdbc streamingJdbc;
+
+    @Transactional
+    public void insertBatch(List<CreateBookCommand> books) {
+        Timestamp registerTime = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_BOOK, books, books.size(), (ps, book) -> {
+            ps.setString(1, book.getTitle());
+            ps.setString(2, book.getAuthor());
+            ps.setString(3, book.getCategory());
+            ps.setBoolean(4, book.isBlocked());
+            ps.setTimestamp(5, registerTime);
+        });
+        //zaimportowane książki trafiają do wieczornego podsumowania w tej samej transakcji
+        jdbcTemplate.batchUpdate(INSERT_DIGEST_PENDING_BOOK, books, books.size(), (ps, book) -> {
+            ps.setString(1, book.getCategory());
+            ps.setString(2, book.getTitle());
+            ps.setString(3, book.getAuthor());
+            ps.setTimestamp(4, registerTime);
+        });
+    }
+
+    public void streamAll(Consumer<BookDto> consumer) {
+        streamingJdbc.query(SELECT_ALL_BOOKS, resultSet -> {
+            Timestamp registerTime = resultSet.getTimestamp("register_time");
+            consumer.accept(BookDto.builder()
+                    .id(resultSet.getInt("id"))
+                    .title(resultSet.getString("title"))
+                    .author(resultSet.getString("author"))
+                    .category(resultSet.getString("category"))
+                    .blocked(resultSet.getBoolean("blocked"))
+                    .registerTime(registerTime == null ? null : registerTime.toLocalDateTime())
+                    .build());
+        });
+    }
+
+    public int findMaxId() {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM book", Integer.class);
+        return maxId == null ? 0 : maxId;
+    }
+}
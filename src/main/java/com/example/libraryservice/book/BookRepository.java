@@ -1,27 +1,63 @@
 package com.example.libraryservice.book;
 
 import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.BookBlockState;
+import com.example.libraryservice.book.model.BookDto;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface BookRepository extends JpaRepository<Book, Integer> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Book> findWithLockingById(int id);
 
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Book> findWithVersionIncrementById(int id);
+
+    //stała kolejność blokad po id chroni przed zakleszczeniem koszyków
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<Book> findAllWithLockingByIdIn(Collection<Integer> ids);
+
     @Modifying
     @Query("UPDATE Book b SET b.blocked = true WHERE b.id = :id AND b.blocked = false")
     int blockBookById(int id);
 
-    @Query("SELECT b FROM Book b WHERE b.registerTime >= :cutoffTime")
-    Slice<Book> findBooksAddedWithinLast24Hours(LocalDateTime cutoffTime, Pageable pageable);
+    //blokada wierszy paczki w stałej kolejności - stan odczytany tutaj jest tym, który zmieni UPDATE
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.example.libraryservice.book.model.BookBlockState(b.id, b.blocked) FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+    List<BookBlockState> findBlockStatesForUpdate(Collection<Integer> ids);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.blocked = :blocked WHERE b.id IN :ids AND b.blocked <> :blocked")
+    int updateBlocked(Collection<Integer> ids, boolean blocked);
+
+    @Query(value = "SELECT new com.example.libraryservice.book.model.BookDto(b.id, b.title, b.author, b.category, b.blocked, b.registerTime) FROM Book b",
+            countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookDto> findAllDtos(Pageable pageable);
+
+    //antyzłączenie: jedno przejście po książkach kategorii, podzapytanie trafia w indeks rental(book_id, returned, ...)
+    @Query(value = "SELECT new com.example.libraryservice.book.model.BookDto(b.id, b.title, b.author, b.category, b.blocked, b.registerTime) " +
+            "FROM Book b WHERE b.category = :category AND b.blocked = false AND NOT EXISTS " +
+            "(SELECT r.id FROM Rental r WHERE r.book = b AND r.returned = false AND r.fromDate <= :toDate AND r.toDate >= :fromDate)",
+            countQuery = "SELECT COUNT(b) FROM Book b WHERE b.category = :category AND b.blocked = false AND NOT EXISTS " +
+                    "(SELECT r.id FROM Rental r WHERE r.book = b AND r.returned = false AND r.fromDate <= :toDate AND r.toDate >= :fromDate)")
+    Page<BookDto> findAvailableDtos(String category, LocalDate fromDate, LocalDate toDate, Pageable pageable);
+
+    @Query("SELECT new com.example.libraryservice.book.model.BookDto(b.id, b.title, b.author, b.category, b.blocked, b.registerTime) FROM Book b WHERE b.id > :afterId ORDER BY b.id")
+    List<BookDto> findNextDtos(int afterId, Pageable pageable);
+
+    @Query("SELECT new com.example.libraryservice.book.model.BookDto(b.id, b.title, b.author, b.category, b.blocked, b.registerTime) FROM Book b WHERE b.id = :id")
+    Optional<BookDto> findDtoById(int id);
 }
 
 
@@ -2,34 +2,38 @@ package com.example.libraryservice.book;
 
 import com.example.libraryservice.book.command.CreateBookCommand;
 import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.BookBlockResult;
+import com.example.libraryservice.book.model.BookBlockState;
 import com.example.libraryservice.book.model.BookDto;
-import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
-import com.example.libraryservice.common.exception.model.SubAddingException;
+import com.example.libraryservice.book.model.DigestPendingBook;
+import com.example.libraryservice.book.cache.BookCache;
+import com.example.libraryservice.book.digest.DigestDispatcher;
+import com.example.libraryservice.book.digest.DigestPart;
+import com.example.libraryservice.book.digest.DigestPendingBookRepository;
+import com.example.libraryservice.book.digest.DigestProgress;
+import com.example.libraryservice.book.digest.DigestShardCoordinator;
+import com.example.libraryservice.book.digest.DigestWindow;
+import com.example.libraryservice.book.model.BookSlice;
+import com.example.libraryservice.book.search.BookSearchIndex;
+import com.example.libraryservice.common.exception.model.BookException;
 import com.example.libraryservice.monitoring_logs.MonitorMethod;
 import com.example.libraryservice.rabbit.model.BookInfo;
-import com.example.libraryservice.subscription.SubscriptionRepository;
 import com.example.libraryservice.common.exception.model.BookNotFoundException;
-import com.example.libraryservice.rabbit.model.MailInfoRabbit;
-import com.example.libraryservice.rabbit.service.RabbitMqService;
-import com.example.libraryservice.subscription.model.Subscription;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.example.libraryservice.mapper.BookMapper.MAPPER;
@@ -38,25 +42,24 @@ import static com.example.libraryservice.mapper.BookMapper.MAPPER;
 @RequiredArgsConstructor
 public class BookService {
     private final BookRepository bookRepository;
-    private final SubscriptionRepository subscriptionRepository;
-    private final RabbitMqService rabbitMqService;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCache bookCache;
+    private final DigestDispatcher digestDispatcher;
+    private final DigestPendingBookRepository digestPendingBookRepository;
+    private final DigestShardCoordinator digestShardCoordinator;
+    private final DigestWindow digestWindow;
+    private final DigestProgress digestProgress;
 
-    @Value("${library-queue-name}")
-    private String queueName;
+    private static final int MAX_SLICE_SIZE = 100;
 
-    private final int corePoolSize = 2;
+    private static final String CURSOR_PREFIX = "id:";
 
-    private final int maxPoolSize = 4;
-
-    private final int keepAliveTime = 60;
+    private static final int BLOCK_CHUNK_SIZE = 1000;
 
     private final Logger logger = LoggerFactory.getLogger(BookService.class);
-    private final BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
-    private final ThreadPoolExecutor executorService = new ThreadPoolExecutor(
-            corePoolSize, maxPoolSize, keepAliveTime, TimeUnit.SECONDS, workQueue
-    );
 
     @MonitorMethod
+    @Transactional
     public BookDto save(CreateBookCommand command) {
         Book savedBook = createBookSave(command);
         return MAPPER.mapToDto(savedBook);
@@ -64,134 +67,189 @@ public class BookService {
 
 
     //metoda wysylająca info do subskrybentów danych kategorii o nowych książkach danego dnia
-    @Scheduled(cron = "0 0 19 * * ?")
+    //książki pochodzą z akumulatora digest_pending_book, więc koszt zależy tylko od liczby nowych książek
+    //co tick sprawdza bieżący slot okna wysyłki; slot jest obsługiwany raz na węźle,
+    //a książki, których nie dostali odbiorcy wcześniejszych slotów, są doganiane w kolejnym
+    @Scheduled(fixedDelayString = "${digest.window.tick-millis:60000}")
     public void sendInfo() {
-        List<Book> newBooks = findBooksAddedLast24Hours();
-
-        Map<String, List<String>> categorySubscribersMap = buildCategorySubscribersMap(newBooks);
-
-        sendMailInfoForCategories(categorySubscribersMap, newBooks);
+        if (!digestWindow.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = digestWindow.windowStart(now);
+        int slot = digestWindow.slotAt(now);
+        if (!digestProgress.beginSlot(windowStart, slot)) {
+            return;
+        }
+        long started = System.nanoTime();
+        DigestShardCoordinator.ShardRun run = digestShardCoordinator.runShards(shard -> sendDigestShard(shard, windowStart, slot));
+        if (!run.complete()) {
+            //shardy zajęte przez inne węzły albo z nieudaną wysyłką - slot zostaje otwarty i kolejny tick spróbuje ponownie
+            logger.info("Digest slot {} of window {}: shards {} busy on other nodes, shards {} failed, retrying on next tick",
+                    slot, windowStart, run.busy(), run.failed());
+            return;
+        }
+        digestProgress.completeSlot(windowStart, slot, Duration.ofNanos(System.nanoTime() - started));
+        logger.info("Digest slot {} of window {} processed, shards handled by this node: {}", slot, windowStart, run.processed());
     }
 
-    public Map<String, List<String>> buildCategorySubscribersMap(List<Book> newBooks) {
-        Map<String, List<String>> categorySubscribersMap = new HashMap<>();
-
-        for (Book book : newBooks) {
-            String bookCategory = book.getCategory();
-            categorySubscribersMap.computeIfAbsent(bookCategory, k -> new ArrayList<>());
-            try {
-                addSubscribersForCategory(bookCategory, categorySubscribersMap);
-            } catch (SubAddingException e) {
-                logger.error("An error occurred while adding subscribers for category: " + bookCategory, e);
-            }
+    //wysyła książki shardu odbiorcom slotu; po ostatnim slocie książki są usuwane
+    public void sendDigestShard(int shard, LocalDateTime windowStart, int slot) {
+        List<String> categories = digestPendingBookRepository.findDueCategories(windowStart, slot).stream()
+                .filter(category -> digestShardCoordinator.shardOf(category) == shard)
+                .toList();
+        if (categories.isEmpty()) {
+            return;
         }
-
-        return categorySubscribersMap;
+        //książki z różnym ostatnim slotem trafiają do różnych zakresów odbiorców
+        Map<Integer, List<DigestPendingBook>> dueBySentSlot = digestPendingBookRepository.findDue(categories, windowStart, slot).stream()
+                .collect(Collectors.groupingBy(book -> book.getSentSlot() == null ? -1 : book.getSentSlot(), TreeMap::new, Collectors.toList()));
+
+        List<DigestPart> parts = new ArrayList<>();
+        dueBySentSlot.forEach((sentSlot, due) -> parts.add(new DigestPart(
+                groupBookInfoByCategory(due.stream()
+                        .map(book -> new BookInfo(book.getTitle(), book.getCategory(), book.getAuthor()))
+                        .toList()),
+                digestWindow.recipientsInSlots(windowStart, sentSlot, slot))));
+        //nieudana paczka kończy się wyjątkiem, więc książki zostają w kolejce bez oznaczenia slotu
+        int messages = digestDispatcher.dispatch(parts);
+
+        List<Long> ids = dueBySentSlot.values().stream().flatMap(List::stream).map(DigestPendingBook::getId).toList();
+        if (slot == digestWindow.lastSlot()) {
+            digestPendingBookRepository.deleteByIds(ids);
+        } else {
+            digestPendingBookRepository.markSent(ids, slot);
+        }
+        logger.info("Digest shard {} slot {} sent for {} categories in {} messages", shard, slot, categories.size(), messages);
     }
 
-    public List<Book> findBooksAddedLast24Hours() {
-        int pageSize = 5000;
-        LocalDateTime cutOffTime = LocalDateTime.now().minusDays(1);
-        List<Book> result = new ArrayList<>();
-        int pageNumber = 0;
-
-        while (true) {
-            Slice<Book> booksPage = bookRepository.findBooksAddedWithinLast24Hours(
-                    cutOffTime,
-                    PageRequest.of(pageNumber, pageSize)
-            );
-
-            List<Book> books = booksPage.getContent();
-            result.addAll(books);
+    public Map<String, List<BookInfo>> groupBookInfoByCategory(List<BookInfo> newBooks) {
+        return newBooks.stream()
+                .collect(Collectors.groupingBy(BookInfo::getCategory, TreeMap::new, Collectors.toList()));
+    }
 
-            if (!booksPage.hasNext()) {
-                break;
-            }
+    @MonitorMethod
+    public Page<BookDto> findPage(Pageable pageable) {
+        return bookCache.getPage(pageable, bookRepository::findAllDtos);
+    }
 
-            pageNumber++;
+    @MonitorMethod
+    public BookDto findById(int id) {
+        BookDto book = bookCache.getBook(id, key -> bookRepository.findDtoById(key).orElse(null));
+        if (book == null) {
+            throw new BookNotFoundException("BOOK_WITH_ID " + id + " NOT_FOUND");
         }
-
-        return result;
+        return book;
     }
 
-    public void addSubscribersForCategory(String bookCategory, Map<String, List<String>> categorySubscribersMap) {
-        int pageSize = 5000;
-        int pageNumber = 0;
-
-        while (true) {
-            Slice<Subscription> subscribersSlice = subscriptionRepository.findSubscriptionsByCategoryNameAndActiveFetchUser(
-                    bookCategory, true, PageRequest.of(pageNumber, pageSize));
+    //stronicowanie po kluczu (keyset) - brak OFFSET i zapytania COUNT, stały czas niezależnie od numeru strony
+    @MonitorMethod
+    public BookSlice findSlice(String after, int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new BookException("PAGE_SIZE_MUST_BE_BETWEEN_1_AND_" + MAX_SLICE_SIZE);
+        }
+        int afterId = after == null || after.isBlank() ? 0 : decodeCursor(after);
+        return bookCache.getSlice(afterId, size, () -> loadSlice(afterId, size));
+    }
 
-            List<Subscription> subscribers = subscribersSlice.getContent();
+    private BookSlice loadSlice(int afterId, int size) {
+        List<BookDto> books = bookRepository.findNextDtos(afterId, PageRequest.of(0, size + 1));
+        boolean hasNext = books.size() > size;
+        List<BookDto> content = hasNext ? new ArrayList<>(books.subList(0, size)) : books;
+
+        String nextCursor = hasNext ? encodeCursor(content.get(content.size() - 1).getId()) : null;
+        return BookSlice.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
 
-            if (subscribers.isEmpty()) {
-                break;
-            }
+    public String encodeCursor(int id) {
+        byte[] raw = (CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
 
-            List<String> subscriberEmails = categorySubscribersMap.computeIfAbsent(bookCategory, k -> new ArrayList<>());
-            for (Subscription subscriber : subscribers) {
-                String userEmail = subscriber.getUser().getEmail();
-                if (!subscriberEmails.contains(userEmail)) {
-                    subscriberEmails.add(userEmail);
-                }
+    public int decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new BookException("INVALID_CURSOR");
             }
-            pageNumber++;
+            return Integer.parseInt(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BookException("INVALID_CURSOR");
         }
     }
 
-    public void sendMailInfoForCategories(Map<String, List<String>> categorySubscribersMap, List<Book> newBooks) {
-        for (Map.Entry<String, List<String>> entry : categorySubscribersMap.entrySet()) {
-            String bookCategory = entry.getKey();
-            List<String> subscriberEmails = entry.getValue();
-
-            List<Book> booksInCategory = newBooks.stream()
-                    .filter(book -> book.getCategory().equals(bookCategory))
-                    .collect(Collectors.toList());
-
-            executorService.execute(() -> {
-                try {
-                    MailInfoRabbit mailInfo = createMailInfo(subscriberEmails, bookCategory, booksInCategory);
-                    rabbitMqService.send(mailInfo, queueName);
-                } catch (RabbitMessageSendingException e) {
-                    logger.error("Error while sending mail info for category: " + bookCategory, e);
-                }
-            });
+    @MonitorMethod
+    @Transactional
+    public void blockBookById(int id) {
+        int updatedCount = bookRepository.blockBookById(id);
+
+        if (updatedCount == 0) {
+            throw new BookNotFoundException("BOOK_NOT_FOUND_OR_ALREADY_BLOCKED");
         }
+        bookSearchIndex.markBlocked(List.of(id), true);
+        bookCache.evictBooks(List.of(id));
     }
 
-    public MailInfoRabbit createMailInfo(List<String> subscriberEmails, String bookCategory, List<Book> newBooks) {
-        MailInfoRabbit mailInfo = new MailInfoRabbit();
-        mailInfo.setSubscriberEmails(subscriberEmails);
-
-        List<BookInfo> bookInfoList = new ArrayList<>();
-        for (Book book : newBooks) {
-            if (book.getCategory().equals(bookCategory)) {
-                BookInfo bookInfo = BookInfo.builder()
-                        .title(book.getTitle())
-                        .category(book.getCategory())
-                        .author(book.getAuthor())
-                        .build();
-                bookInfoList.add(bookInfo);
+    //blokowanie/odblokowanie wielu książek w jednej transakcji, paczkami po BLOCK_CHUNK_SIZE id zablokowanych rosnąco po id
+    @MonitorMethod
+    @Transactional
+    public BookBlockResult changeBlockedStatus(List<Integer> ids, boolean blocked) {
+        List<Integer> uniqueIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        BookBlockResult result = new BookBlockResult();
+
+        for (int from = 0; from < uniqueIds.size(); from += BLOCK_CHUNK_SIZE) {
+            List<Integer> chunk = uniqueIds.subList(from, Math.min(from + BLOCK_CHUNK_SIZE, uniqueIds.size()));
+            Set<Integer> found = new HashSet<>();
+            List<Integer> toChange = new ArrayList<>();
+
+            for (BookBlockState state : bookRepository.findBlockStatesForUpdate(chunk)) {
+                found.add(state.getId());
+                if (state.isBlocked() == blocked) {
+                    result.getUnchanged().add(state.getId());
+                } else {
+                    toChange.add(state.getId());
+                }
+            }
+            chunk.stream()
+                    .filter(id -> !found.contains(id))
+                    .forEach(result.getMissing()::add);
+
+            if (!toChange.isEmpty()) {
+                int updatedCount = bookRepository.updateBlocked(toChange, blocked);
+                if (updatedCount != toChange.size()) {
+                    throw new BookException("BOOK_BLOCK_STATUS_CHANGED_CONCURRENTLY");
+                }
+                result.getUpdated().addAll(toChange);
             }
         }
-        mailInfo.setBookInfoList(bookInfoList);
 
-        return mailInfo;
+        bookSearchIndex.markBlocked(result.getUpdated(), blocked);
+        bookCache.evictBooks(result.getUpdated());
+        return result;
     }
 
     @MonitorMethod
-    public Page<Book> findAll(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+    public Page<BookDto> findAvailable(String category, LocalDate fromDate, LocalDate toDate, Pageable pageable) {
+        if (fromDate.isAfter(toDate)) {
+            throw new BookException("TO_DATE_CAN_NOT_BE_BEFORE_FROM_DATE");
+        }
+        return bookRepository.findAvailableDtos(category, fromDate, toDate, pageable);
     }
 
     @MonitorMethod
-    @Transactional
-    public void blockBookById(int id) {
-        int updatedCount = bookRepository.blockBookById(id);
-
-        if (updatedCount == 0) {
-            throw new BookNotFoundException("BOOK_NOT_FOUND_OR_ALREADY_BLOCKED");
+    public Page<BookDto> search(String query, Pageable pageable) {
+        if (query == null || query.isBlank()) {
+            throw new BookException("SEARCH_QUERY_IS_BLANK");
         }
+        return bookSearchIndex.search(query, pageable);
     }
 
     public Book createBookSave(CreateBookCommand command) {
@@ -200,6 +258,15 @@ public class BookService {
         book.setAuthor(command.getAuthor());
         book.setCategory(command.getCategory());
         book.setBlocked(command.isBlocked());
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        digestPendingBookRepository.save(DigestPendingBook.builder()
+                .category(savedBook.getCategory())
+                .title(savedBook.getTitle())
+                .author(savedBook.getAuthor())
+                .createdAt(LocalDateTime.now())
+                .build());
+        bookSearchIndex.index(savedBook);
+        bookCache.evictListingsAfterInsert();
+        return savedBook;
     }
 }
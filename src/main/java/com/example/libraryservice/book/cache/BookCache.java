@@ -0,0 +1,100 @@
+package com.example.libraryservice.book.cache;
+
+import com.example.libraryservice.book.model.BookDto;
+import com.example.libraryservice.book.model.BookSlice;
+import com.example.libraryservice.monitoring_logs.CacheStatisticsDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+//cache odczytów katalogu - pojedyncze książki oraz najczęściej pobierane strony listy
+@Component
+public class BookCache {
+    private final Cache<Integer, BookDto> books;
+    private final Cache<Pageable, Page<BookDto>> pages;
+    private final Cache<SliceKey, BookSlice> slices;
+
+    public BookCache(@Value("${book.cache.max-size:10000}") long maxSize,
+                     @Value("${book.cache.listing-max-size:500}") long listingMaxSize,
+                     @Value("${book.cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.books = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+        this.pages = Caffeine.newBuilder().maximumSize(listingMaxSize).expireAfterWrite(ttl).recordStats().build();
+        this.slices = Caffeine.newBuilder().maximumSize(listingMaxSize).expireAfterWrite(ttl).recordStats().build();
+    }
+
+    public BookDto getBook(int id, Function<Integer, BookDto> loader) {
+        return books.get(id, loader);
+    }
+
+    public Page<BookDto> getPage(Pageable pageable, Function<Pageable, Page<BookDto>> loader) {
+        return pages.get(pageable, loader);
+    }
+
+    public BookSlice getSlice(int afterId, int size, Supplier<BookSlice> loader) {
+        return slices.get(new SliceKey(afterId, size), key -> loader.get());
+    }
+
+    //nowa książka dostaje największe id: zmienia sumy na wszystkich stronach, ale tylko ostatni wycinek kursora
+    public void evictListingsAfterInsert() {
+        afterCommit(() -> {
+            pages.invalidateAll();
+            slices.asMap().values().removeIf(slice -> !slice.isHasNext());
+        });
+    }
+
+    public void evictBooks(Collection<Integer> ids) {
+        afterCommit(() -> {
+            books.invalidateAll(ids);
+            pages.asMap().values().removeIf(page -> containsAny(page.getContent(), ids));
+            slices.asMap().values().removeIf(slice -> containsAny(slice.getContent(), ids));
+        });
+    }
+
+    public Map<String, CacheStatisticsDto> stats() {
+        Map<String, CacheStatisticsDto> stats = new LinkedHashMap<>();
+        stats.put("books", CacheStatisticsDto.of(books.stats(), books.estimatedSize()));
+        stats.put("pages", CacheStatisticsDto.of(pages.stats(), pages.estimatedSize()));
+        stats.put("slices", CacheStatisticsDto.of(slices.stats(), slices.estimatedSize()));
+        return stats;
+    }
+
+    private boolean containsAny(Collection<BookDto> content, Collection<Integer> ids) {
+        return content.stream().anyMatch(book -> ids.contains(book.getId()));
+    }
+
+    //unieważniamy dopiero po commicie, żeby równoległy odczyt nie wpisał z powrotem starej wersji
+    private void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class SliceKey {
+        private final int afterId;
+        private final int size;
+    }
+}
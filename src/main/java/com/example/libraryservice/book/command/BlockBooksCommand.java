@@ -0,0 +1,14 @@
+package com.example.libraryservice.book.command;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BlockBooksCommand {
+    @NotEmpty
+    @Size(max = 10000, message = "at most 10000 ids per request")
+    private List<Integer> ids;
+}
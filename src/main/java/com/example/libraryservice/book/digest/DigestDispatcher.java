@@ -0,0 +1,188 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.enums.DigestConsolidationMode;
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
+import com.example.libraryservice.rabbit.model.BookInfo;
+import com.example.libraryservice.rabbit.model.MailInfoRabbit;
+import com.example.libraryservice.rabbit.service.RabbitMqService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.example.libraryservice.common.executor.ManagedExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+//strumieniowe podsumowanie: subskrybenci płyną z bazy, w pamięci są tylko książki i co najwyżej maxInFlight paczek
+//(PER_CATEGORY; PER_RECIPIENT musi najpierw zebrać zestaw kategorii każdego odbiorcy)
+@Component
+public class DigestDispatcher {
+
+    private final DigestSubscriberReader digestSubscriberReader;
+    private final RabbitMqService rabbitMqService;
+    private final String queueName;
+    private final int maxRecipients;
+    private final int maxPayloadBytes;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ManagedExecutor digestSendExecutor;
+    private final DigestConsolidationMode consolidationMode;
+    private final DigestProgress digestProgress;
+    private final Logger logger = LoggerFactory.getLogger(DigestDispatcher.class);
+
+    public DigestDispatcher(DigestSubscriberReader digestSubscriberReader,
+                            RabbitMqService rabbitMqService,
+                            @Value("${library-queue-name}") String queueName,
+                            @Value("${digest.max-recipients-per-message:1000}") int maxRecipients,
+                            @Value("${digest.max-payload-bytes:262144}") int maxPayloadBytes,
+                            @Value("${digest.max-in-flight:8}") int maxInFlight,
+                            @Qualifier("digestSendExecutor") ManagedExecutor digestSendExecutor,
+                            @Value("${digest.consolidation:PER_CATEGORY}") DigestConsolidationMode consolidationMode,
+                            DigestProgress digestProgress) {
+        this.digestSubscriberReader = digestSubscriberReader;
+        this.rabbitMqService = rabbitMqService;
+        this.queueName = queueName;
+        this.maxRecipients = maxRecipients;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.digestSendExecutor = digestSendExecutor;
+        this.consolidationMode = consolidationMode;
+        this.digestProgress = digestProgress;
+    }
+
+    public int dispatch(Map<String, List<BookInfo>> newBooksByCategory) {
+        return dispatch(newBooksByCategory, email -> true);
+    }
+
+    //recipientFilter zawęża wysyłkę do odbiorców bieżącego slotu okna
+    public int dispatch(Map<String, List<BookInfo>> newBooksByCategory, Predicate<String> recipientFilter) {
+        return dispatch(List.of(new DigestPart(newBooksByCategory, recipientFilter)));
+    }
+
+    //wszystkie części w jednym przebiegu, żeby PER_RECIPIENT złożył odbiorcy jeden mail z książek każdej części
+    public int dispatch(List<DigestPart> parts) {
+        if (consolidationMode == DigestConsolidationMode.PER_RECIPIENT) {
+            return dispatchPerRecipient(parts);
+        }
+        AtomicInteger messages = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        parts.forEach(part -> dispatchPerCategory(part.newBooksByCategory(), part.recipientFilter(), messages, failed));
+        awaitInFlight();
+        throwIfFailed(failed);
+        return messages.get();
+    }
+
+    private void dispatchPerCategory(Map<String, List<BookInfo>> newBooksByCategory, Predicate<String> recipientFilter,
+                                     AtomicInteger messages, AtomicInteger failed) {
+        RecipientBatcher[] current = new RecipientBatcher[1];
+
+        //zapytanie zwraca subskrybentów posortowanych po kategorii, więc wystarczy jeden batcher naraz
+        digestSubscriberReader.forEachSubscriber(newBooksByCategory.keySet(), subscriber -> {
+            String category = subscriber.getCategoryName();
+            List<BookInfo> books = newBooksByCategory.get(category);
+            if (books == null || !recipientFilter.test(subscriber.getUserEmail())) {
+                return;
+            }
+            if (current[0] == null || !current[0].getCategory().equals(category)) {
+                if (current[0] != null) {
+                    current[0].flush();
+                }
+                current[0] = new RecipientBatcher(category, books, maxRecipients, maxPayloadBytes,
+                        mailInfo -> submit(mailInfo, messages, failed));
+            }
+            current[0].add(subscriber.getUserEmail());
+        });
+        if (current[0] != null) {
+            current[0].flush();
+        }
+    }
+
+    //jeden mail na odbiorcę ze wszystkimi jego kategoriami; odbiorcy o tym samym zestawie kategorii dzielą wiadomość.
+    //W przeciwieństwie do PER_CATEGORY trzyma w pamięci wszystkich odbiorców przebiegu (patrz RecipientConsolidator)
+    private int dispatchPerRecipient(List<DigestPart> parts) {
+        AtomicInteger messages = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        //pozycja = kategoria w części; ta sama kategoria może wystąpić w kilku częściach z innymi książkami
+        List<DigestPart> itemParts = new ArrayList<>();
+        List<String> itemCategories = new ArrayList<>();
+        Map<String, List<Integer>> itemsByCategory = new TreeMap<>();
+        for (DigestPart part : parts) {
+            for (String category : new TreeSet<>(part.newBooksByCategory().keySet())) {
+                itemsByCategory.computeIfAbsent(category, key -> new ArrayList<>()).add(itemParts.size());
+                itemParts.add(part);
+                itemCategories.add(category);
+            }
+        }
+
+        RecipientConsolidator consolidator = new RecipientConsolidator(itemParts.size());
+        digestSubscriberReader.forEachSubscriber(itemsByCategory.keySet(), subscriber -> {
+            List<Integer> items = itemsByCategory.get(subscriber.getCategoryName());
+            if (items == null) {
+                return;
+            }
+            for (int item : items) {
+                if (itemParts.get(item).recipientFilter().test(subscriber.getUserEmail())) {
+                    consolidator.add(item, subscriber.getUserEmail());
+                }
+            }
+        });
+
+        consolidator.forEachGroup((items, recipients) -> {
+            List<BookInfo> books = new ArrayList<>();
+            Set<String> categories = new TreeSet<>();
+            items.stream().forEach(item -> {
+                books.addAll(itemParts.get(item).newBooksByCategory().get(itemCategories.get(item)));
+                categories.add(itemCategories.get(item));
+            });
+            RecipientBatcher batcher = new RecipientBatcher(String.join(",", categories), books,
+                    maxRecipients, maxPayloadBytes, mailInfo -> submit(mailInfo, messages, failed));
+            recipients.forEach(batcher::add);
+            batcher.flush();
+        });
+
+        awaitInFlight();
+        throwIfFailed(failed);
+        logger.info("Consolidated digest for {} recipients into {} messages", consolidator.recipientCount(), messages.get());
+        return messages.get();
+    }
+
+    //wysyłka poza wątkiem strumienia - zapis do outboxa nie może dołączyć do transakcji tylko do odczytu
+    private void submit(MailInfoRabbit mailInfo, AtomicInteger messages, AtomicInteger failed) {
+        inFlight.acquireUninterruptibly();
+        try {
+            digestSendExecutor.execute(() -> {
+                try {
+                    rabbitMqService.send(mailInfo, queueName);
+                    messages.incrementAndGet();
+                    digestProgress.recordMessage(mailInfo.getSubscriberEmails().size());
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.error("Error while sending digest batch of {} recipients", mailInfo.getSubscriberEmails().size(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    //wysłane paczki zostają wysłane, ale wywołujący nie może uznać książek za dostarczone
+    private void throwIfFailed(AtomicInteger failed) {
+        if (failed.get() > 0) {
+            logger.error("{} digest batches were not sent", failed.get());
+            throw new RabbitMessageSendingException("DIGEST_NOT_SENT");
+        }
+    }
+
+    private void awaitInFlight() {
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+}
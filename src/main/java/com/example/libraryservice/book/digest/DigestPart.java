@@ -0,0 +1,11 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.rabbit.model.BookInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+//książki z jednym zakresem odbiorców; shard z książkami z różnych slotów ma kilka części
+public record DigestPart(Map<String, List<BookInfo>> newBooksByCategory, Predicate<String> recipientFilter) {
+}
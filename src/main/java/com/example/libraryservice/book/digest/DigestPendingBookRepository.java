@@ -0,0 +1,33 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.book.model.DigestPendingBook;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface DigestPendingBookRepository extends JpaRepository<DigestPendingBook, Long> {
+
+    //książki sprzed startu okna, których odbiorcy slotu jeszcze nie dostali
+    @Query("SELECT DISTINCT p.category FROM DigestPendingBook p " +
+            "WHERE p.createdAt < :cutoff AND (p.sentSlot IS NULL OR p.sentSlot < :slot)")
+    List<String> findDueCategories(LocalDateTime cutoff, int slot);
+
+    @Query("SELECT p FROM DigestPendingBook p WHERE p.category IN :categories " +
+            "AND p.createdAt < :cutoff AND (p.sentSlot IS NULL OR p.sentSlot < :slot) ORDER BY p.id")
+    List<DigestPendingBook> findDue(Collection<String> categories, LocalDateTime cutoff, int slot);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DigestPendingBook p SET p.sentSlot = :slot WHERE p.id IN :ids")
+    int markSent(Collection<Long> ids, int slot);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DigestPendingBook p WHERE p.id IN :ids")
+    int deleteByIds(Collection<Long> ids);
+}
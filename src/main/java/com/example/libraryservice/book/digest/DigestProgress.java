@@ -0,0 +1,92 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.executor.TokenBucket;
+import com.example.libraryservice.monitoring_logs.DigestProgressDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.LongAdder;
+
+//postęp bieżącego okna wysyłki na tym węźle; ETA = start ostatniego slotu + średni czas przebiegu slotu
+@Component
+public class DigestProgress {
+
+    private final DigestWindow digestWindow;
+    private final TokenBucket digestRateLimiter;
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder recipientsDelivered = new LongAdder();
+    private LocalDateTime windowStart;
+    private int currentSlot = -1;
+    private int lastCompletedSlot = -1;
+    private int completedPasses;
+    private Duration totalPassTime = Duration.ZERO;
+    private LocalDateTime completedAt;
+
+    public DigestProgress(DigestWindow digestWindow, @Qualifier("digestRateLimiter") TokenBucket digestRateLimiter) {
+        this.digestWindow = digestWindow;
+        this.digestRateLimiter = digestRateLimiter;
+    }
+
+    //false gdy slot był już obsłużony na tym węźle w tym oknie
+    public synchronized boolean beginSlot(LocalDateTime windowStart, int slot) {
+        if (!windowStart.equals(this.windowStart)) {
+            this.windowStart = windowStart;
+            lastCompletedSlot = -1;
+            completedPasses = 0;
+            totalPassTime = Duration.ZERO;
+            completedAt = null;
+            messagesSent.reset();
+            recipientsDelivered.reset();
+        }
+        if (slot <= lastCompletedSlot) {
+            return false;
+        }
+        currentSlot = slot;
+        return true;
+    }
+
+    public synchronized void completeSlot(LocalDateTime windowStart, int slot, Duration took) {
+        if (!windowStart.equals(this.windowStart)) {
+            return;
+        }
+        lastCompletedSlot = Math.max(lastCompletedSlot, slot);
+        completedPasses++;
+        totalPassTime = totalPassTime.plus(took);
+        if (slot == digestWindow.lastSlot()) {
+            completedAt = LocalDateTime.now();
+        }
+    }
+
+    public void recordMessage(int recipients) {
+        messagesSent.increment();
+        recipientsDelivered.add(recipients);
+    }
+
+    public synchronized DigestProgressDto stats() {
+        LocalDateTime start = windowStart != null ? windowStart : digestWindow.windowStart(LocalDateTime.now());
+        return new DigestProgressDto(
+                start,
+                digestWindow.windowEnd(start),
+                digestWindow.getSlots(),
+                currentSlot,
+                lastCompletedSlot + 1,
+                messagesSent.sum(),
+                recipientsDelivered.sum(),
+                digestRateLimiter.getPermitsPerSecond(),
+                digestRateLimiter.getThrottledMillis(),
+                estimatedCompletion(start));
+    }
+
+    private LocalDateTime estimatedCompletion(LocalDateTime start) {
+        if (completedAt != null) {
+            return completedAt;
+        }
+        LocalDateTime lastSlotStart = digestWindow.slotStart(start, digestWindow.lastSlot());
+        if (completedPasses == 0) {
+            return lastSlotStart;
+        }
+        return lastSlotStart.plus(totalPassTime.dividedBy(completedPasses));
+    }
+}
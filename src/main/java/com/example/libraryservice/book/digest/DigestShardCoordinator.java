@@ -0,0 +1,79 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.enums.DigestConsolidationMode;
+import com.example.libraryservice.common.job.SchedulerLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+//dzieli podsumowanie na shardy po haszu kategorii; każdy węzeł bierze wolne shardy w jednym przebiegu,
+//zajęte zostawia na kolejny tick harmonogramu, więc wątek harmonogramu nigdy nie czeka na inny węzeł
+@Component
+public class DigestShardCoordinator {
+    private static final String LOCK_PREFIX = "digest-shard-";
+
+    private final SchedulerLockService schedulerLockService;
+    private final int shards;
+    private final Duration lease;
+    private final Logger logger = LoggerFactory.getLogger(DigestShardCoordinator.class);
+
+    public DigestShardCoordinator(SchedulerLockService schedulerLockService,
+                                  @Value("${digest.shards:8}") int shards,
+                                  @Value("${digest.shard-lease-seconds:900}") long leaseSeconds,
+                                  @Value("${digest.consolidation:PER_CATEGORY}") DigestConsolidationMode consolidationMode) {
+        this.schedulerLockService = schedulerLockService;
+        //shardy po kategorii rozcinają zestaw kategorii odbiorcy na kilka przebiegów i kilka maili
+        if (consolidationMode == DigestConsolidationMode.PER_RECIPIENT && shards > 1) {
+            logger.warn("digest.consolidation=PER_RECIPIENT needs every category in one pass, ignoring digest.shards={} and using 1", shards);
+            this.shards = 1;
+        } else {
+            this.shards = shards;
+        }
+        this.lease = Duration.ofSeconds(leaseSeconds);
+    }
+
+    public int shardOf(String category) {
+        return Math.floorMod(category.hashCode(), shards);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public ShardRun runShards(IntConsumer shardTask) {
+        //losowy punkt startu rozkłada węzły po różnych shardach
+        int offset = ThreadLocalRandom.current().nextInt(shards);
+        int processed = 0;
+        List<Integer> busy = new ArrayList<>();
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            int shard = (offset + i) % shards;
+            //dzierżawa jest przedłużana w trakcie zadania, więc długi przebieg nie trafi do drugiego węzła
+            try {
+                if (schedulerLockService.runExclusively(LOCK_PREFIX + shard, lease, () -> shardTask.accept(shard))) {
+                    processed++;
+                } else {
+                    busy.add(shard);
+                }
+            } catch (RuntimeException e) {
+                //nieudany shard nie zatrzymuje pozostałych; jego książki czekają na kolejny tick
+                logger.error("Digest shard {} failed: {}", shard, e.getMessage());
+                failed.add(shard);
+            }
+        }
+        return new ShardRun(processed, busy, failed);
+    }
+
+    public record ShardRun(int processed, List<Integer> busy, List<Integer> failed) {
+        public boolean complete() {
+            return busy.isEmpty() && failed.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.subscription.SubscriptionJdbcRepository;
+import com.example.libraryservice.subscription.index.SubscriptionIndex;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+//strumień subskrybentów dla dziennego podsumowania - jedno zapytanie dla wszystkich kategorii
+@Component
+@RequiredArgsConstructor
+public class DigestSubscriberReader {
+
+    private final SubscriptionJdbcRepository subscriptionJdbcRepository;
+    private final SubscriptionIndex subscriptionIndex;
+
+    //kolejne duplikaty (ta sama kategoria i email) są pomijane, zapytanie zwraca je obok siebie
+    public void forEachSubscriber(Collection<String> categoryNames, Consumer<CategorySubscriber> consumer) {
+        if (categoryNames.isEmpty()) {
+            return;
+        }
+        //baza, dopóki indeks nie jest zbudowany albo nie dogonił zmian z innych węzłów
+        if (subscriptionIndex.isCurrent()) {
+            subscriptionIndex.forEachSubscriber(categoryNames, consumer);
+            return;
+        }
+        CategorySubscriber[] previous = new CategorySubscriber[1];
+        subscriptionJdbcRepository.forEachActiveSubscriber(categoryNames, subscriber -> {
+            if (!isSameAs(previous[0], subscriber)) {
+                consumer.accept(subscriber);
+            }
+            previous[0] = subscriber;
+        });
+    }
+
+    private boolean isSameAs(CategorySubscriber previous, CategorySubscriber current) {
+        return previous != null
+                && previous.getCategoryName().equals(current.getCategoryName())
+                && previous.getUserEmail().equals(current.getUserEmail());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.user.UserRepository;
+import com.example.libraryservice.user.model.DigestSlotPreference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+//okno wysyłki podsumowania podzielone na sloty; użytkownik może wybrać slot, reszta jest rozkładana po haszu emaila
+@Component
+public class DigestWindow {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final LocalTime start;
+    private final Duration length;
+    private final int slots;
+    private final Duration slotLength;
+
+    public DigestWindow(UserRepository userRepository,
+                        @Value("${digest.window.enabled:true}") boolean enabled,
+                        @Value("${digest.window.start:19:00}") String start,
+                        @Value("${digest.window.minutes:240}") long windowMinutes,
+                        @Value("${digest.window.slots:8}") int slots) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.start = LocalTime.parse(start);
+        this.length = Duration.ofMinutes(windowMinutes);
+        this.slots = Math.max(1, slots);
+        this.slotLength = length.dividedBy(this.slots);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //ostatni start okna nie późniejszy niż now
+    public LocalDateTime windowStart(LocalDateTime now) {
+        LocalDateTime today = now.toLocalDate().atTime(start);
+        return now.isBefore(today) ? today.minusDays(1) : today;
+    }
+
+    public LocalDateTime windowEnd(LocalDateTime windowStart) {
+        return windowStart.plus(length);
+    }
+
+    public LocalDateTime slotStart(LocalDateTime windowStart, int slot) {
+        return windowStart.plus(slotLength.multipliedBy(slot));
+    }
+
+    //po końcu okna zwraca ostatni slot, żeby dokończyć zaległą wysyłkę
+    public int slotAt(LocalDateTime now) {
+        Duration elapsed = Duration.between(windowStart(now), now);
+        return (int) Math.min(elapsed.toNanos() / slotLength.toNanos(), lastSlot());
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int lastSlot() {
+        return slots - 1;
+    }
+
+    public boolean isValidSlot(int slot) {
+        return slot >= 0 && slot < slots;
+    }
+
+    public int slotOf(String email, Map<String, Integer> preferences) {
+        Integer preferred = preferences.get(email);
+        if (preferred != null && isValidSlot(preferred)) {
+            return preferred;
+        }
+        return Math.floorMod(email.hashCode(), slots);
+    }
+
+    //odbiorcy slotów z przedziału (fromExclusive, toInclusive] - obejmuje sloty pominięte np. przez restart;
+    //slot użytkownika jest liczony dla okna windowStart, więc zmiana w trakcie okna nie przenosi go między slotami
+    public Predicate<String> recipientsInSlots(LocalDateTime windowStart, int fromExclusive, int toInclusive) {
+        Map<String, Integer> preferences = userRepository.findDigestSlotPreferences(windowStart).stream()
+                .filter(preference -> preference.getDigestSlot() != null)
+                .collect(Collectors.toMap(DigestSlotPreference::getEmail, DigestSlotPreference::getDigestSlot));
+        return email -> {
+            int slot = slotOf(email, preferences);
+            return slot > fromExclusive && slot <= toInclusive;
+        };
+    }
+}
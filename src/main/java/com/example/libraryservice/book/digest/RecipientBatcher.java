@@ -0,0 +1,70 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.rabbit.model.BookInfo;
+import com.example.libraryservice.rabbit.model.MailInfoRabbit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//tnie odbiorców jednej kategorii na wiadomości o ograniczonej liczbie adresów i rozmiarze JSON
+class RecipientBatcher {
+    //{"subscriberEmails":[],"bookInfoList":[]}
+    private static final int MESSAGE_OVERHEAD_BYTES = 40;
+    //{"title":"","category":"","author":""},
+    private static final int BOOK_OVERHEAD_BYTES = 37;
+    //"",
+    private static final int EMAIL_OVERHEAD_BYTES = 3;
+
+    private final String category;
+    private final List<BookInfo> books;
+    private final int maxRecipients;
+    private final int maxPayloadBytes;
+    private final Consumer<MailInfoRabbit> sink;
+    private final int booksBytes;
+
+    private List<String> recipients = new ArrayList<>();
+    private int payloadBytes;
+
+    RecipientBatcher(String category, List<BookInfo> books, int maxRecipients, int maxPayloadBytes, Consumer<MailInfoRabbit> sink) {
+        this.category = category;
+        this.books = books;
+        this.maxRecipients = maxRecipients;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.sink = sink;
+        this.booksBytes = MESSAGE_OVERHEAD_BYTES + books.stream().mapToInt(RecipientBatcher::estimateBytes).sum();
+        this.payloadBytes = booksBytes;
+    }
+
+    String getCategory() {
+        return category;
+    }
+
+    void add(String email) {
+        int emailBytes = email.getBytes(StandardCharsets.UTF_8).length + EMAIL_OVERHEAD_BYTES;
+        //co najmniej jeden odbiorca na wiadomość, nawet gdy sama lista książek przekracza limit
+        if (!recipients.isEmpty() && (recipients.size() >= maxRecipients || payloadBytes + emailBytes > maxPayloadBytes)) {
+            flush();
+        }
+        recipients.add(email);
+        payloadBytes += emailBytes;
+    }
+
+    void flush() {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        sink.accept(new MailInfoRabbit(recipients, books));
+        recipients = new ArrayList<>();
+        payloadBytes = booksBytes;
+    }
+
+    private static int estimateBytes(BookInfo book) {
+        return BOOK_OVERHEAD_BYTES + utf8Length(book.getTitle()) + utf8Length(book.getCategory()) + utf8Length(book.getAuthor());
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 4 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -29,6 +29,8 @@ public class Book {
     private Set<Rental> rentals = new HashSet<>();
     @CreatedDate
     private LocalDateTime registerTime;
+    @Version
+    private long version;
 
 }
 
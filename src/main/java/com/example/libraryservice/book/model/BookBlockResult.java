@@ -0,0 +1,22 @@
+package com.example.libraryservice.book.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookBlockResult {
+    @Builder.Default
+    private List<Integer> updated = new ArrayList<>();
+    @Builder.Default
+    private List<Integer> unchanged = new ArrayList<>();
+    @Builder.Default
+    private List<Integer> missing = new ArrayList<>();
+}
@@ -0,0 +1,11 @@
+package com.example.libraryservice.book.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BookBlockState {
+    private Integer id;
+    private boolean blocked;
+}
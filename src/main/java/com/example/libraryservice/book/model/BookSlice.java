@@ -0,0 +1,20 @@
+package com.example.libraryservice.book.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookSlice {
+    @Builder.Default
+    private List<BookDto> content = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasNext;
+}
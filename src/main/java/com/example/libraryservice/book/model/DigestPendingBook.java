@@ -0,0 +1,26 @@
+package com.example.libraryservice.book.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//nowa książka czekająca na wieczorne podsumowanie
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "digest_pending_book")
+public class DigestPendingBook {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String category;
+    private String title;
+    private String author;
+    private LocalDateTime createdAt;
+    //ostatni slot dostarczenia, którego odbiorcy dostali już tę książkę
+    private Integer sentSlot;
+}
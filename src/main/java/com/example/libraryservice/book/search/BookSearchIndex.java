@@ -0,0 +1,173 @@
+package com.example.libraryservice.book.search;
+
+import com.example.libraryservice.book.BookRepository;
+import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.BookDto;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import static com.example.libraryservice.mapper.BookMapper.MAPPER;
+
+//indeks odwrócony (token -> id książek) po tytule, autorze i kategorii, trzymany w pamięci
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+    private static final int REBUILD_PAGE_SIZE = 5000;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final BookRepository bookRepository;
+    private final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private final ConcurrentSkipListMap<String, Set<Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, BookDto> documents = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        indexFrom(0);
+        logger.info("Book search index built: {} books, {} terms in {} ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - startTime);
+    }
+
+    public void indexFrom(int afterId) {
+        while (true) {
+            List<BookDto> books = bookRepository.findNextDtos(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            books.forEach(this::index);
+
+            if (books.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+            afterId = books.get(books.size() - 1).getId();
+        }
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        index(MAPPER.mapToDto(book));
+    }
+
+    public synchronized void index(BookDto book) {
+        BookDto previous = documents.put(book.getId(), book);
+        if (previous != null) {
+            tokens(previous).forEach(token -> removePosting(token, previous.getId()));
+        }
+        tokens(book).forEach(token ->
+                postings.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(book.getId()));
+    }
+
+    //jak w BookCache - zmiana widoczna w wyszukiwarce dopiero po commicie, wycofana transakcja nie zostawia śladu
+    public void markBlocked(Collection<Integer> ids, boolean blocked) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> ids.forEach(id -> markBlocked(id, blocked)));
+    }
+
+    private synchronized void markBlocked(int id, boolean blocked) {
+        documents.computeIfPresent(id, (k, book) -> book.toBuilder().blocked(blocked).build());
+    }
+
+    public Page<BookDto> search(String query, Pageable pageable) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Set<Integer> matches = null;
+        for (String term : terms) {
+            Set<Integer> termMatches = matchPrefix(term);
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.retainAll(termMatches);
+            }
+            if (matches.isEmpty()) {
+                return Page.empty(pageable);
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(matches);
+        Collections.sort(ids);
+
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<BookDto> content = new ArrayList<>(to - from);
+        for (Integer id : ids.subList(from, to)) {
+            BookDto book = documents.get(id);
+            if (book != null) {
+                content.add(book);
+            }
+        }
+        return new PageImpl<>(content, pageable, ids.size());
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private Set<Integer> matchPrefix(String term) {
+        Set<Integer> result = new HashSet<>();
+        postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                .values()
+                .forEach(result::addAll);
+        return result;
+    }
+
+    private void removePosting(String token, Integer id) {
+        postings.computeIfPresent(token, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private Set<String> tokens(BookDto book) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(tokenize(book.getTitle()));
+        tokens.addAll(tokenize(book.getAuthor()));
+        tokens.addAll(tokenize(book.getCategory()));
+        return tokens;
+    }
+
+    private Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
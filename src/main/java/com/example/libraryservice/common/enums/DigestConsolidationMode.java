@@ -0,0 +1,6 @@
+package com.example.libraryservice.common.enums;
+
+public enum DigestConsolidationMode {
+    PER_CATEGORY,
+    PER_RECIPIENT
+}
@@ -0,0 +1,6 @@
+package com.example.libraryservice.common.enums;
+
+public enum ExecutorMode {
+    PLATFORM,
+    VIRTUAL
+}
@@ -0,0 +1,17 @@
+package com.example.libraryservice.common.enums;
+
+public enum RabbitWireFormat {
+    JSON("application/json"),
+    CBOR("application/cbor"),
+    SMILE("application/x-jackson-smile");
+
+    private final String contentType;
+
+    RabbitWireFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
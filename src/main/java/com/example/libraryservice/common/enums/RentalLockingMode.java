@@ -0,0 +1,7 @@
+package com.example.libraryservice.common.enums;
+
+public enum RentalLockingMode {
+    PESSIMISTIC,
+    OPTIMISTIC,
+    STRIPED
+}
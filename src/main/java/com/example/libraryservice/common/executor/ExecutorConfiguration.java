@@ -0,0 +1,34 @@
+package com.example.libraryservice.common.executor;
+
+import com.example.libraryservice.common.enums.ExecutorMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ExecutorConfiguration {
+
+    @Value("${executor.mode:PLATFORM}")
+    private ExecutorMode mode;
+
+    @Value("${executor.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    //w locie jest najwyżej digest.max-in-flight paczek, więc kolejka nie musi być większa
+    @Bean(destroyMethod = "shutdown")
+    public ManagedExecutor digestSendExecutor(@Value("${digest.send-threads:2}") int sendThreads,
+                                              @Value("${digest.max-in-flight:8}") int maxInFlight,
+                                              @Value("${thread.alive.time:60}") long keepAliveSeconds) {
+        return new ManagedExecutor("digest-send", mode, sendThreads, sendThreads, keepAliveSeconds,
+                maxInFlight, Duration.ofSeconds(shutdownTimeoutSeconds));
+    }
+
+    //limit publikacji podsumowań na węźle (PublishPacer), żeby nocna wysyłka nie zalewała brokera i usługi mailowej
+    @Bean
+    public TokenBucket digestRateLimiter(@Value("${digest.rate.messages-per-second:20}") double messagesPerSecond,
+                                         @Value("${digest.rate.burst:40}") int burst) {
+        return new TokenBucket(messagesPerSecond, burst);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.libraryservice.common.executor;
+
+import com.example.libraryservice.common.enums.ExecutorMode;
+import com.example.libraryservice.monitoring_logs.ExecutorStatisticsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//pula z ograniczoną kolejką: gdy kolejka jest pełna zadanie wykonuje wątek wywołujący (backpressure),
+//przy zamknięciu czeka na dokończenie zadań, a po drodze zbiera metryki kolejki i czasu zadań
+public class ManagedExecutor implements Executor {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final ExecutorMode mode;
+    private final int queueCapacity;
+    private final Duration shutdownTimeout;
+    private final ExecutorService delegate;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore virtualPermits;
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(ManagedExecutor.class);
+
+    public ManagedExecutor(String name, ExecutorMode mode, int corePoolSize, int maxPoolSize,
+                           long keepAliveSeconds, int queueCapacity, Duration shutdownTimeout) {
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        this.shutdownTimeout = shutdownTimeout;
+
+        ExecutorService virtualExecutor = mode == ExecutorMode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.mode = ExecutorMode.VIRTUAL;
+            this.delegate = virtualExecutor;
+            this.pool = null;
+            //wątki wirtualne nie mają kolejki, więc limit dotyczy liczby zadań w locie
+            this.virtualPermits = new Semaphore(maxPoolSize + queueCapacity);
+        } else {
+            if (mode == ExecutorMode.VIRTUAL) {
+                logger.warn("Virtual threads are not available on this JVM, executor {} falls back to platform threads", name);
+            }
+            this.mode = ExecutorMode.PLATFORM;
+            this.pool = new ThreadPoolExecutor(corePoolSize, Math.max(corePoolSize, maxPoolSize),
+                    keepAliveSeconds, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    namedThreadFactory(name), this::runInCaller);
+            this.delegate = pool;
+            this.virtualPermits = null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submitted.increment();
+        Runnable instrumented = instrument(task, System.nanoTime());
+        if (virtualPermits == null) {
+            pool.execute(instrumented);
+            return;
+        }
+        if (delegate.isShutdown()) {
+            throw new RejectedExecutionException("Executor " + name + " is shut down");
+        }
+        if (!virtualPermits.tryAcquire()) {
+            callerRuns.increment();
+            instrumented.run();
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    instrumented.run();
+                } finally {
+                    virtualPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            virtualPermits.release();
+            throw e;
+        }
+    }
+
+    public ExecutorStatisticsDto stats() {
+        long done = completed.sum();
+        return new ExecutorStatisticsDto(
+                mode.name(),
+                pool != null ? pool.getPoolSize() : activeTasks.get(),
+                activeTasks.get(),
+                pool != null ? pool.getQueue().size() : 0,
+                queueCapacity,
+                submitted.sum(),
+                done,
+                failed.sum(),
+                callerRuns.sum(),
+                done == 0 ? 0 : queueWaitNanos.sum() / NANOS_PER_MILLI / done,
+                maxQueueWaitNanos.get() / NANOS_PER_MILLI,
+                done == 0 ? 0 : runNanos.sum() / NANOS_PER_MILLI / done);
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Executor {} did not drain within {}, interrupting remaining tasks", name, shutdownTimeout);
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable instrument(Runnable task, long enqueuedAt) {
+        return () -> {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - enqueuedAt;
+            queueWaitNanos.add(waited);
+            maxQueueWaitNanos.accumulateAndGet(waited, Math::max);
+            activeTasks.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Task failed in executor {}", name, e);
+            } finally {
+                activeTasks.decrementAndGet();
+                runNanos.add(System.nanoTime() - startedAt);
+                completed.increment();
+            }
+        };
+    }
+
+    private void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor " + name + " is shut down");
+        }
+        callerRuns.increment();
+        task.run();
+    }
+
+    //Executors.newVirtualThreadPerTaskExecutor istnieje od Javy 21, szukamy jej refleksją żeby kompilować się na 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+}
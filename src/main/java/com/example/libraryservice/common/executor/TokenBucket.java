@@ -0,0 +1,85 @@
+package com.example.libraryservice.common.executor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+//kubełek żetonów: średnio permitsPerSecond operacji na sekundę, chwilowo do burst naraz;
+//permitsPerSecond <= 0 wyłącza limit
+public class TokenBucket {
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final double permitsPerSecond;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+    private final LongAdder throttledNanos = new LongAdder();
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    public void acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        throttledNanos.add(waitNanos);
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //rezerwuje żeton z góry i zwraca, ile trzeba na niego poczekać - czekanie odbywa się poza blokadą
+    synchronized long reserve() {
+        if (permitsPerSecond <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * NANOS_PER_SECOND);
+    }
+
+    //bez czekania: bierze tyle całych żetonów, ile jest teraz dostępnych, najwyżej max
+    public synchronized int tryAcquire(int max) {
+        if (permitsPerSecond <= 0) {
+            return max;
+        }
+        refill();
+        int granted = (int) Math.max(0, Math.min(max, Math.floor(tokens)));
+        tokens -= granted;
+        return granted;
+    }
+
+    //oddaje żetony, których nie wykorzystano
+    public synchronized void release(int permits) {
+        if (permitsPerSecond > 0) {
+            tokens = Math.min(capacity, tokens + permits);
+        }
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / NANOS_PER_SECOND * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+    }
+}
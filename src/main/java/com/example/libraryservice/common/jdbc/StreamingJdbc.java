@@ -0,0 +1,57 @@
+package com.example.libraryservice.common.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+//osobna mała pula dla długich odczytów strumieniowych; tylko jej URL (jdbc.streaming.url) włącza kursor po stronie serwera,
+//więc pozostałe zapytania aplikacji nie przechodzą na serwerowe prepared statements
+@Component
+public class StreamingJdbc implements DisposableBean {
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public StreamingJdbc(DataSourceProperties dataSourceProperties,
+                         @Value("${jdbc.streaming.url:${spring.datasource.url}}") String url,
+                         @Value("${jdbc.streaming.pool-size:2}") int poolSize,
+                         @Value("${jdbc.streaming.fetch-size:1000}") int fetchSize) {
+        this.dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        dataSource.setPoolName("streaming");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.fetchSize = fetchSize;
+    }
+
+    public void query(String sql, RowCallbackHandler rowHandler) {
+        query(sql, statement -> {
+        }, rowHandler);
+    }
+
+    //kursor tylko do przodu - wiersze są przekazywane dalej pojedynczo, bez kontekstu persystencji
+    public void query(String sql, PreparedStatementSetter parameters, RowCallbackHandler rowHandler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            parameters.setValues(statement);
+            return statement;
+        }, rowHandler);
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.libraryservice.common.job;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "job_checkpoint")
+public class JobCheckpoint {
+    @Id
+    private String jobName;
+    private LocalDate runDate;
+    private int lastProcessedId;
+    private boolean completed;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.libraryservice.common.job;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "scheduler_lock")
+public class SchedulerLock {
+    @Id
+    private String lockName;
+    private String lockedBy;
+    private LocalDateTime lockedAt;
+    private LocalDateTime lockedUntil;
+}
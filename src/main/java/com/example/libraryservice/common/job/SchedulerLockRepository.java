@@ -0,0 +1,30 @@
+package com.example.libraryservice.common.job;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    //warunkowy UPDATE jest atomowy - blokadę przejmuje dokładnie jeden węzeł, i tylko gdy dzierżawa wygasła
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.lockedBy = :owner, l.lockedAt = :now, l.lockedUntil = :until " +
+            "WHERE l.lockName = :lockName AND l.lockedUntil <= :now")
+    int acquire(String lockName, String owner, LocalDateTime now, LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :now WHERE l.lockName = :lockName AND l.lockedBy = :owner")
+    int release(String lockName, String owner, LocalDateTime now);
+
+    //przedłuża tylko własną, jeszcze ważną dzierżawę
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerLock l SET l.lockedUntil = :until " +
+            "WHERE l.lockName = :lockName AND l.lockedBy = :owner AND l.lockedUntil > :now")
+    int extend(String lockName, String owner, LocalDateTime now, LocalDateTime until);
+}
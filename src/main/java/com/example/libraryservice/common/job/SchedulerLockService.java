@@ -0,0 +1,123 @@
+package com.example.libraryservice.common.job;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+//blokady zadań harmonogramu w bazie: dzierżawa z terminem, więc blokada padniętego węzła sama wygasa
+@Service
+public class SchedulerLockService {
+    private static final LocalDateTime NEVER_LOCKED = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final String nodeId;
+    private final ScheduledExecutorService leaseRenewals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scheduler-lock-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Logger logger = LoggerFactory.getLogger(SchedulerLockService.class);
+
+    public SchedulerLockService(SchedulerLockRepository schedulerLockRepository,
+                                @Value("${scheduler.node-id:}") String nodeId) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean tryAcquire(String lockName, Duration lease) {
+        createIfMissing(lockName);
+        LocalDateTime now = LocalDateTime.now();
+        return schedulerLockRepository.acquire(lockName, nodeId, now, now.plus(lease)) == 1;
+    }
+
+    public void release(String lockName) {
+        schedulerLockRepository.release(lockName, nodeId, LocalDateTime.now());
+    }
+
+    public boolean runExclusively(String lockName, Duration lease, Runnable task) {
+        if (!tryAcquire(lockName, lease)) {
+            logger.info("Skipping {}, lock is held by another node", lockName);
+            return false;
+        }
+        //dzierżawa jest odnawiana co 1/3 jej długości, więc wygasa tylko po padnięciu węzła, a nie przy długim zadaniu
+        Object renewalGuard = new Object();
+        boolean[] finished = {false};
+        long renewEveryMillis = Math.max(1, lease.toMillis() / 3);
+        ScheduledFuture<?> renewal = leaseRenewals.scheduleAtFixedRate(() -> {
+            synchronized (renewalGuard) {
+                if (!finished[0]) {
+                    extend(lockName, lease);
+                }
+            }
+        }, renewEveryMillis, renewEveryMillis, TimeUnit.MILLISECONDS);
+        try {
+            task.run();
+            return true;
+        } finally {
+            //po zakończeniu odnowienie nie może już przedłużyć zwolnionej blokady
+            synchronized (renewalGuard) {
+                finished[0] = true;
+            }
+            renewal.cancel(false);
+            release(lockName);
+        }
+    }
+
+    void extend(String lockName, Duration lease) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (schedulerLockRepository.extend(lockName, nodeId, now, now.plus(lease)) == 0) {
+                logger.warn("Lease on {} expired or was taken over while the task was still running", lockName);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not extend lease on {}: {}", lockName, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        leaseRenewals.shutdownNow();
+    }
+
+    private void createIfMissing(String lockName) {
+        if (schedulerLockRepository.existsById(lockName)) {
+            return;
+        }
+        try {
+            schedulerLockRepository.saveAndFlush(SchedulerLock.builder()
+                    .lockName(lockName)
+                    .lockedAt(NEVER_LOCKED)
+                    .lockedUntil(NEVER_LOCKED)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            //wiersz utworzył w międzyczasie inny węzeł
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.libraryservice.common.validator;
+
+import java.time.LocalDate;
+
+public interface DateRange {
+    LocalDate getFromDate();
+
+    LocalDate getToDate();
+}
@@ -1,16 +1,15 @@
 package com.example.libraryservice.common.validator;
 
-import com.example.libraryservice.rental.command.CreateRentalCommand;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-class FromDateBeforeToDateValidator implements ConstraintValidator<FromDateBeforeToDate, CreateRentalCommand> {
+class FromDateBeforeToDateValidator implements ConstraintValidator<FromDateBeforeToDate, DateRange> {
     @Override
     public void initialize(FromDateBeforeToDate constraintAnnotation) {
     }
 
     @Override
-    public boolean isValid(CreateRentalCommand dateRange, ConstraintValidatorContext context) {
+    public boolean isValid(DateRange dateRange, ConstraintValidatorContext context) {
         if (dateRange == null) {
             return true;
         }
@@ -0,0 +1,17 @@
+package com.example.libraryservice.monitoring_logs;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+@Value
+public class CacheStatisticsDto {
+    long size;
+    long hitCount;
+    long missCount;
+    double hitRate;
+    long evictionCount;
+
+    public static CacheStatisticsDto of(CacheStats stats, long size) {
+        return new CacheStatisticsDto(size, stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+}
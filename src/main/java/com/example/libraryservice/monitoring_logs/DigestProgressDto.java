@@ -0,0 +1,19 @@
+package com.example.libraryservice.monitoring_logs;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class DigestProgressDto {
+    LocalDateTime windowStart;
+    LocalDateTime windowEnd;
+    int slots;
+    int currentSlot;
+    int servedSlots;
+    long messagesSent;
+    long recipientsDelivered;
+    double rateLimitPerSecond;
+    long throttledMillis;
+    LocalDateTime estimatedCompletion;
+}
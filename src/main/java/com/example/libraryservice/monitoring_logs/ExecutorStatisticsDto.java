@@ -0,0 +1,19 @@
+package com.example.libraryservice.monitoring_logs;
+
+import lombok.Value;
+
+@Value
+public class ExecutorStatisticsDto {
+    String mode;
+    int poolSize;
+    int activeTasks;
+    int queueDepth;
+    int queueCapacity;
+    long submittedCount;
+    long completedCount;
+    long failedCount;
+    long callerRunsCount;
+    double averageQueueWaitMillis;
+    double maxQueueWaitMillis;
+    double averageRunMillis;
+}
@@ -0,0 +1,46 @@
+package com.example.libraryservice.monitoring_logs;
+
+import com.example.libraryservice.book.cache.BookCache;
+import com.example.libraryservice.book.digest.DigestProgress;
+import com.example.libraryservice.common.executor.ManagedExecutor;
+import com.example.libraryservice.rabbit.service.PublisherCounters;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/monitoring")
+public class MonitoringController {
+    private final BookCache bookCache;
+    private final List<ManagedExecutor> managedExecutors;
+    private final PublisherCounters publisherCounters;
+    private final DigestProgress digestProgress;
+
+    @GetMapping("/book-cache")
+    public Map<String, CacheStatisticsDto> bookCacheStats() {
+        return bookCache.stats();
+    }
+
+    @GetMapping("/executors")
+    public Map<String, ExecutorStatisticsDto> executorStats() {
+        Map<String, ExecutorStatisticsDto> stats = new TreeMap<>();
+        managedExecutors.forEach(executor -> stats.put(executor.getName(), executor.stats()));
+        return stats;
+    }
+
+    @GetMapping("/rabbit-publishers")
+    public Map<String, PublisherStatisticsDto> rabbitPublisherStats() {
+        return publisherCounters.stats();
+    }
+
+    @GetMapping("/digest")
+    public DigestProgressDto digestProgress() {
+        return digestProgress.stats();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.libraryservice.monitoring_logs;
+
+import lombok.Value;
+
+@Value
+public class PublisherStatisticsDto {
+    long publishedCount;
+    long confirmedCount;
+    long nackedCount;
+    long retriedCount;
+    long failedCount;
+    double publishedPerSecond;
+}
@@ -0,0 +1,48 @@
+package com.example.libraryservice.rabbit.configuration;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+
+//Jackson na binarnym formacie (CBOR/Smile); typ niesie nagłówek __TypeId__ tak jak w konwerterze JSON
+public class BinaryJacksonMessageConverter extends AbstractMessageConverter {
+
+    private final ObjectMapper objectMapper;
+    private final String contentType;
+    private final DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+
+    public BinaryJacksonMessageConverter(ObjectMapper objectMapper, String contentType, String... trustedPackages) {
+        this.objectMapper = objectMapper;
+        this.contentType = contentType;
+        this.typeMapper.setTrustedPackages(trustedPackages);
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(object);
+            messageProperties.setContentType(contentType);
+            messageProperties.setContentLength(body.length);
+            typeMapper.fromJavaType(objectMapper.constructType(object.getClass()), messageProperties);
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to encode " + contentType + " message", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        try {
+            JavaType targetType = typeMapper.toJavaType(message.getMessageProperties());
+            return objectMapper.readValue(message.getBody(), targetType);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to decode " + contentType + " message", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.libraryservice.rabbit.configuration;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.postprocessor.DelegatingDecompressingPostProcessor;
+import org.springframework.amqp.support.postprocessor.GZipPostProcessor;
+
+//kompresuje gzipem tylko duże wiadomości (content-encoding: gzip), przy odbiorze rozpakowuje według nagłówka
+public class CompressingMessageConverter implements MessageConverter {
+
+    private final MessageConverter delegate;
+    private final int thresholdBytes;
+    private final GZipPostProcessor gzip = new GZipPostProcessor();
+    private final DelegatingDecompressingPostProcessor decompressor = new DelegatingDecompressingPostProcessor();
+
+    public CompressingMessageConverter(MessageConverter delegate, int thresholdBytes) {
+        this.delegate = delegate;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        Message message = delegate.toMessage(object, messageProperties);
+        if (message.getBody().length < thresholdBytes) {
+            return message;
+        }
+        Message compressed = gzip.postProcessMessage(message);
+        compressed.getMessageProperties().setContentLength(compressed.getBody().length);
+        return compressed;
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        String encoding = message.getMessageProperties().getContentEncoding();
+        Message plain = encoding != null && encoding.startsWith("gzip") ? decompressor.postProcessMessage(message) : message;
+        return delegate.fromMessage(plain);
+    }
+}
@@ -1,14 +1,51 @@
 package com.example.libraryservice.rabbit.configuration;
 
+import com.example.libraryservice.common.enums.RabbitWireFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
+
 @Configuration
 public class RabbitConfig {
+    private static final String[] TRUSTED_PACKAGES = {
+            "com.example.libraryservice.rabbit.model",
+            "com.example.libraryservice.monitoring_logs"
+    };
+
+    //wysyłamy w formacie z rabbit.wire-format, odbieramy według nagłówka content-type
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter jsonMessageConverter(@Value("${rabbit.wire-format:JSON}") RabbitWireFormat wireFormat,
+                                                 @Value("${rabbit.compression.enabled:false}") boolean compressionEnabled,
+                                                 @Value("${rabbit.compression.threshold-bytes:16384}") int compressionThresholdBytes) {
+        Map<RabbitWireFormat, MessageConverter> converters = Map.of(
+                RabbitWireFormat.JSON, new Jackson2JsonMessageConverter(TRUSTED_PACKAGES),
+                RabbitWireFormat.CBOR, new BinaryJacksonMessageConverter(binaryMapper(new CBORMapper()),
+                        RabbitWireFormat.CBOR.getContentType(), TRUSTED_PACKAGES),
+                RabbitWireFormat.SMILE, new BinaryJacksonMessageConverter(binaryMapper(new SmileMapper()),
+                        RabbitWireFormat.SMILE.getContentType(), TRUSTED_PACKAGES));
+
+        ContentTypeDelegatingMessageConverter negotiating = new ContentTypeDelegatingMessageConverter(converters.get(wireFormat));
+        converters.forEach((format, converter) -> negotiating.addDelegate(format.getContentType(), converter));
+
+        return compressionEnabled ? new CompressingMessageConverter(negotiating, compressionThresholdBytes) : negotiating;
+    }
+
+    //RabbitAdmin deklaruje kolejkę przy pierwszym połączeniu - bez niej przypomnienia z domyślnego exchange przepadają
+    @Bean
+    public Queue overdueQueue(@Value("${overdue-queue-name}") String overdueQueueName) {
+        return new Queue(overdueQueueName, true);
+    }
+
+    private static ObjectMapper binaryMapper(ObjectMapper mapper) {
+        return mapper.findAndRegisterModules();
     }
 }
@@ -0,0 +1,24 @@
+package com.example.libraryservice.rabbit.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "outbox_message")
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String queueName;
+    private String payloadType;
+    @Lob
+    private String payload;
+    private LocalDateTime createdAt;
+}
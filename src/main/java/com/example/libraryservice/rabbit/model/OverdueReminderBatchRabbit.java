@@ -0,0 +1,16 @@
+package com.example.libraryservice.rabbit.model;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class OverdueReminderBatchRabbit {
+    @Builder.Default
+    private List<OverdueReminderRabbit> reminders = new ArrayList<>();
+}
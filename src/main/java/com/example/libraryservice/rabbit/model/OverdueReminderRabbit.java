@@ -0,0 +1,17 @@
+package com.example.libraryservice.rabbit.model;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class OverdueReminderRabbit {
+    private String userEmail;
+    @Builder.Default
+    private List<OverdueRentalInfo> rentals = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package com.example.libraryservice.rabbit.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OverdueRentalInfo {
+    private int rentalId;
+    private String bookTitle;
+    private LocalDate toDate;
+}
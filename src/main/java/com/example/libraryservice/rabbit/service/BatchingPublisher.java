@@ -0,0 +1,65 @@
+package com.example.libraryservice.rabbit.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.BatchingRabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+//skleja wiadomości do tej samej kolejki w jedną wiadomość AMQP (liczba / rozmiar / czas oczekiwania);
+//konsumenci Spring rozbijają paczki sami, inni muszą obsłużyć nagłówek springBatchFormat
+@Component
+public class BatchingPublisher {
+
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    private final PublisherCounters publisherCounters;
+    private final int batchSize;
+    private final int bufferLimitBytes;
+    private final long lingerMillis;
+    private ThreadPoolTaskScheduler scheduler;
+    private BatchingRabbitTemplate batchingRabbitTemplate;
+
+    public BatchingPublisher(ConnectionFactory connectionFactory,
+                             MessageConverter messageConverter,
+                             PublisherCounters publisherCounters,
+                             @Value("${rabbit.batching.batch-size:100}") int batchSize,
+                             @Value("${rabbit.batching.buffer-limit-bytes:65536}") int bufferLimitBytes,
+                             @Value("${rabbit.batching.linger-millis:50}") long lingerMillis) {
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.publisherCounters = publisherCounters;
+        this.batchSize = batchSize;
+        this.bufferLimitBytes = bufferLimitBytes;
+        this.lingerMillis = lingerMillis;
+    }
+
+    public void publish(String queueName, Object message) {
+        template().convertAndSend(queueName, message);
+        publisherCounters.published(queueName);
+    }
+
+    //szablon powstaje dopiero przy pierwszej wysyłce, w innych trybach nie startujemy schedulera
+    private synchronized BatchingRabbitTemplate template() {
+        if (batchingRabbitTemplate == null) {
+            scheduler = new ThreadPoolTaskScheduler();
+            scheduler.setThreadNamePrefix("rabbit-batching-");
+            scheduler.initialize();
+            batchingRabbitTemplate = new BatchingRabbitTemplate(connectionFactory,
+                    new SimpleBatchingStrategy(batchSize, bufferLimitBytes, lingerMillis), scheduler);
+            batchingRabbitTemplate.setMessageConverter(messageConverter);
+        }
+        return batchingRabbitTemplate;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (batchingRabbitTemplate != null) {
+            batchingRabbitTemplate.flush();
+            scheduler.shutdown();
+        }
+    }
+}
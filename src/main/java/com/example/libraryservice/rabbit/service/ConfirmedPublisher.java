@@ -0,0 +1,185 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
+import com.rabbitmq.client.Channel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+//wysyłka z asynchronicznymi potwierdzeniami: wątek zbiera paczkę z bufora, publikuje ją na jednym kanale,
+//śledzi niepotwierdzone numery sekwencyjne, a odrzucone (nack) lub niepotwierdzone w czasie ponawia
+@Component
+public class ConfirmedPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final PublisherCounters publisherCounters;
+    private final BlockingQueue<PendingMessage> buffer;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long confirmTimeoutMillis;
+    private final int maxAttempts;
+    private final Logger logger = LoggerFactory.getLogger(ConfirmedPublisher.class);
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public ConfirmedPublisher(RabbitTemplate rabbitTemplate,
+                              PublisherCounters publisherCounters,
+                              @Value("${rabbit.confirmed.batch-size:200}") int batchSize,
+                              @Value("${rabbit.confirmed.linger-millis:20}") long lingerMillis,
+                              @Value("${rabbit.confirmed.buffer-capacity:10000}") int bufferCapacity,
+                              @Value("${rabbit.confirmed.confirm-timeout-millis:5000}") long confirmTimeoutMillis,
+                              @Value("${rabbit.confirmed.max-attempts:3}") int maxAttempts) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.publisherCounters = publisherCounters;
+        this.buffer = new LinkedBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public void publish(String queueName, Object message) {
+        startFlusherIfNeeded();
+        try {
+            //pełny bufor spowalnia wywołującego, a po czasie potwierdzenia wiadomość jest odrzucana z błędem
+            if (!buffer.offer(new PendingMessage(queueName, message, 1), confirmTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                publisherCounters.failed(queueName);
+                logger.error("Confirmed publish buffer is full, message to {} dropped", queueName);
+                throw new RabbitMessageSendingException("MESSAGE_NOT_SENT");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            publisherCounters.failed(queueName);
+            throw new RabbitMessageSendingException("MESSAGE_NOT_SENT");
+        }
+    }
+
+    int publishBatch(List<PendingMessage> batch) {
+        ConcurrentSkipListMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<>();
+        List<PendingMessage> toRetry = Collections.synchronizedList(new ArrayList<>());
+        int[] published = {0};
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingMessage pending : batch) {
+                    Long sequenceNumber = operations.execute(Channel::getNextPublishSeqNo);
+                    outstanding.put(sequenceNumber, pending);
+                    operations.convertAndSend(pending.queueName(), pending.message());
+                    publisherCounters.published(pending.queueName());
+                    published[0]++;
+                }
+                operations.waitForConfirms(confirmTimeoutMillis);
+                return null;
+            }, (deliveryTag, multiple) -> settle(outstanding, deliveryTag, multiple, null),
+                    (deliveryTag, multiple) -> settle(outstanding, deliveryTag, multiple, toRetry));
+        } catch (AmqpException e) {
+            logger.warn("Confirmed publish of {} messages interrupted: {}", batch.size(), e.getMessage());
+        }
+
+        //bez potwierdzenia w czasie albo w ogóle nie wysłane - traktujemy jak nack
+        toRetry.addAll(outstanding.values());
+        toRetry.addAll(batch.subList(published[0], batch.size()));
+        toRetry.forEach(this::retry);
+        return batch.size() - toRetry.size();
+    }
+
+    private void settle(ConcurrentSkipListMap<Long, PendingMessage> outstanding, long deliveryTag, boolean multiple,
+                        List<PendingMessage> rejected) {
+        List<PendingMessage> settled = new ArrayList<>();
+        if (multiple) {
+            NavigableMap<Long, PendingMessage> upToTag = outstanding.headMap(deliveryTag, true);
+            settled.addAll(upToTag.values());
+            upToTag.clear();
+        } else {
+            PendingMessage pending = outstanding.remove(deliveryTag);
+            if (pending != null) {
+                settled.add(pending);
+            }
+        }
+        for (PendingMessage pending : settled) {
+            if (rejected == null) {
+                publisherCounters.confirmed(pending.queueName());
+            } else {
+                publisherCounters.nacked(pending.queueName());
+                rejected.add(pending);
+            }
+        }
+    }
+
+    private void retry(PendingMessage pending) {
+        if (pending.attempt() >= maxAttempts || !buffer.offer(pending.nextAttempt())) {
+            publisherCounters.failed(pending.queueName());
+            logger.error("Giving up on message to {} after {} attempts", pending.queueName(), pending.attempt());
+            return;
+        }
+        publisherCounters.retried(pending.queueName());
+    }
+
+    private synchronized void startFlusherIfNeeded() {
+        if (flusher == null) {
+            flusher = new Thread(this::runFlusher, "rabbit-confirmed-publisher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private void runFlusher() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                List<PendingMessage> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    publishBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Confirmed publisher failed, continuing", e);
+            }
+        }
+    }
+
+    private List<PendingMessage> nextBatch() throws InterruptedException {
+        PendingMessage first = buffer.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingMessage next = remaining > 0 ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : buffer.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    //przy zamknięciu wątek dosyła to, co zostało w buforze
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = flusher;
+        }
+        if (current != null) {
+            current.join(confirmTimeoutMillis * maxAttempts);
+        }
+    }
+
+    record PendingMessage(String queueName, Object message, int attempt) {
+        PendingMessage nextAttempt() {
+            return new PendingMessage(queueName, message, attempt + 1);
+        }
+    }
+}
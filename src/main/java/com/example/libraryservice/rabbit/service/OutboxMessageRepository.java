@@ -0,0 +1,34 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.rabbit.model.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    //SKIP LOCKED - kilka instancji relaya może opróżniać outbox równolegle bez czekania na siebie
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m ORDER BY m.id")
+    List<OutboxMessage> findBatchForRelay(Pageable pageable);
+
+    //kolejki limitowane idą osobną pętlą, więc nie blokują pozostałych wiadomości
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.queueName NOT IN :queueNames ORDER BY m.id")
+    List<OutboxMessage> findBatchForRelayExcluding(@Param("queueNames") Collection<String> queueNames, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.queueName IN :queueNames ORDER BY m.id")
+    List<OutboxMessage> findBatchForRelayIn(@Param("queueNames") Collection<String> queueNames, Pageable pageable);
+}
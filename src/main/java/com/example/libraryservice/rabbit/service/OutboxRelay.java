@@ -0,0 +1,137 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.rabbit.model.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+//opróżnia outbox porcjami: wysyłka z potwierdzeniami brokera, usunięcie wierszy w tej samej transakcji.
+//Kolejki limitowane (PublishPacer) mają osobne porcje wielkości dostępnych żetonów, reszta idzie pełnymi porcjami
+@Component
+@ConditionalOnProperty(name = "rabbit.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final PublisherCounters publisherCounters;
+    private final PublishPacer publishPacer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long confirmTimeoutMillis;
+    private final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository,
+                       RabbitTemplate rabbitTemplate,
+                       ObjectMapper objectMapper,
+                       PublisherCounters publisherCounters,
+                       PublishPacer publishPacer,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${rabbit.outbox.batch-size:200}") int batchSize,
+                       @Value("${rabbit.outbox.confirm-timeout-millis:5000}") long confirmTimeoutMillis) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.publisherCounters = publisherCounters;
+        this.publishPacer = publishPacer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${rabbit.outbox.poll-interval-millis:500}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+            if (!publishPacer.getPacedQueues().isEmpty()) {
+                do {
+                    relayed = relayPacedBatch();
+                } while (relayed > 0);
+            }
+        } catch (Exception e) {
+            //wiersze zostają w outboxie i pójdą w kolejnym przebiegu
+            logger.warn("Outbox relay stopped, will retry: {}", e.getMessage());
+        }
+    }
+
+    //wiadomości kolejek nielimitowanych
+    public int relayBatch() {
+        Set<String> pacedQueues = publishPacer.getPacedQueues();
+        return relay(() -> pacedQueues.isEmpty()
+                ? outboxMessageRepository.findBatchForRelay(PageRequest.of(0, batchSize))
+                : outboxMessageRepository.findBatchForRelayExcluding(pacedQueues, PageRequest.of(0, batchSize)));
+    }
+
+    //wiadomości kolejek limitowanych, tylko tyle, ile pozwalają żetony - bez czekania w otwartej transakcji
+    public int relayPacedBatch() {
+        int permits = publishPacer.tryAcquire(batchSize);
+        if (permits == 0) {
+            return 0;
+        }
+        int relayed = 0;
+        try {
+            relayed = relay(() -> outboxMessageRepository.findBatchForRelayIn(publishPacer.getPacedQueues(), PageRequest.of(0, permits)));
+        } finally {
+            publishPacer.release(permits - relayed);
+        }
+        return relayed;
+    }
+
+    private int relay(Supplier<List<OutboxMessage>> batchLoader) {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<OutboxMessage> batch = batchLoader.get();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> processedIds = new ArrayList<>(batch.size());
+            List<String> publishedQueues = new ArrayList<>(batch.size());
+            rabbitTemplate.invoke(operations -> {
+                for (OutboxMessage message : batch) {
+                    Object payload = readPayload(message);
+                    if (payload != null) {
+                        operations.convertAndSend(message.getQueueName(), payload);
+                        publishedQueues.add(message.getQueueName());
+                    }
+                    processedIds.add(message.getId());
+                }
+                operations.waitForConfirmsOrDie(confirmTimeoutMillis);
+                return null;
+            });
+            publishedQueues.forEach(queueName -> {
+                publisherCounters.published(queueName);
+                publisherCounters.confirmed(queueName);
+            });
+
+            outboxMessageRepository.deleteAllByIdInBatch(processedIds);
+            return batch.size();
+        });
+        return relayed != null ? relayed : 0;
+    }
+
+    //wiadomości, których nie da się odczytać, nigdy nie zostaną wysłane - logujemy i usuwamy
+    private Object readPayload(OutboxMessage message) {
+        try {
+            return objectMapper.readValue(message.getPayload(), Class.forName(message.getPayloadType()));
+        } catch (Exception e) {
+            logger.error("Dropping unreadable outbox message {} of type {}", message.getId(), message.getPayloadType(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.common.executor.TokenBucket;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+//ogranicza tempo publikacji do wybranych kolejek (domyślnie kolejki podsumowań) tam, gdzie wiadomość trafia do brokera:
+//w OutboxRelay przy włączonym outboxie (bez czekania - porcja tylko na dostępne żetony),
+//w RabbitMqService przy wysyłce bezpośredniej
+@Component
+public class PublishPacer {
+
+    private final TokenBucket rateLimiter;
+    private final Set<String> pacedQueues;
+
+    public PublishPacer(@Qualifier("digestRateLimiter") TokenBucket rateLimiter,
+                        @Value("${rabbit.paced-queues:${library-queue-name}}") List<String> pacedQueues) {
+        this.rateLimiter = rateLimiter;
+        this.pacedQueues = Set.copyOf(pacedQueues);
+    }
+
+    public Set<String> getPacedQueues() {
+        return pacedQueues;
+    }
+
+    public boolean isPaced(String queueName) {
+        return pacedQueues.contains(queueName);
+    }
+
+    public void pace(String queueName) {
+        if (isPaced(queueName)) {
+            rateLimiter.acquire();
+        }
+    }
+
+    //ile wiadomości z kolejek limitowanych można wysłać od razu, najwyżej max
+    public int tryAcquire(int max) {
+        return rateLimiter.tryAcquire(max);
+    }
+
+    public void release(int permits) {
+        if (permits > 0) {
+            rateLimiter.release(permits);
+        }
+    }
+}
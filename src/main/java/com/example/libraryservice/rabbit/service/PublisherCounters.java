@@ -0,0 +1,62 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.monitoring_logs.PublisherStatisticsDto;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//liczniki wysyłki per kolejka, przepustowość liczona od pierwszej wiadomości na danej kolejce
+@Component
+public class PublisherCounters {
+
+    private final Map<String, QueueCounters> counters = new ConcurrentHashMap<>();
+
+    public void published(String queueName) {
+        forQueue(queueName).published.increment();
+    }
+
+    public void confirmed(String queueName) {
+        forQueue(queueName).confirmed.increment();
+    }
+
+    public void nacked(String queueName) {
+        forQueue(queueName).nacked.increment();
+    }
+
+    public void retried(String queueName) {
+        forQueue(queueName).retried.increment();
+    }
+
+    public void failed(String queueName) {
+        forQueue(queueName).failed.increment();
+    }
+
+    public Map<String, PublisherStatisticsDto> stats() {
+        Map<String, PublisherStatisticsDto> stats = new TreeMap<>();
+        counters.forEach((queueName, queue) -> stats.put(queueName, queue.toDto()));
+        return stats;
+    }
+
+    private QueueCounters forQueue(String queueName) {
+        return counters.computeIfAbsent(queueName, key -> new QueueCounters());
+    }
+
+    private static final class QueueCounters {
+        private final long startedAt = System.nanoTime();
+        private final LongAdder published = new LongAdder();
+        private final LongAdder confirmed = new LongAdder();
+        private final LongAdder nacked = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        PublisherStatisticsDto toDto() {
+            double seconds = Math.max(1e-3, (System.nanoTime() - startedAt) / 1_000_000_000.0);
+            long publishedCount = published.sum();
+            return new PublisherStatisticsDto(publishedCount, confirmed.sum(), nacked.sum(), retried.sum(),
+                    failed.sum(), publishedCount / seconds);
+        }
+    }
+}
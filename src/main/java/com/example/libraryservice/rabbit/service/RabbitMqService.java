@@ -1,26 +1,92 @@
 package com.example.libraryservice.rabbit.service;
 
+import com.example.libraryservice.common.enums.RabbitPublishMode;
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
+import com.example.libraryservice.rabbit.model.OutboxMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
 @Service
 public class RabbitMqService {
     private final RabbitTemplate rabbitTemplate;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectMapper objectMapper;
+    private final PublisherCounters publisherCounters;
+    private final BatchingPublisher batchingPublisher;
+    private final ConfirmedPublisher confirmedPublisher;
+    private final PublishPacer publishPacer;
+    private final boolean outboxEnabled;
+    private final RabbitPublishMode publishMode;
     private final Logger logger = LoggerFactory.getLogger(RabbitMqService.class);
 
     @Autowired
-    public RabbitMqService(RabbitTemplate rabbitTemplate) {
+    public RabbitMqService(RabbitTemplate rabbitTemplate,
+                           OutboxMessageRepository outboxMessageRepository,
+                           ObjectMapper objectMapper,
+                           PublisherCounters publisherCounters,
+                           BatchingPublisher batchingPublisher,
+                           ConfirmedPublisher confirmedPublisher,
+                           PublishPacer publishPacer,
+                           @Value("${rabbit.outbox.enabled:true}") boolean outboxEnabled,
+                           @Value("${rabbit.publish-mode:DIRECT}") RabbitPublishMode publishMode) {
         this.rabbitTemplate = rabbitTemplate;
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.objectMapper = objectMapper;
+        this.publisherCounters = publisherCounters;
+        this.batchingPublisher = batchingPublisher;
+        this.confirmedPublisher = confirmedPublisher;
+        this.publishPacer = publishPacer;
+        this.outboxEnabled = outboxEnabled;
+        this.publishMode = publishMode;
     }
 
     public void send(Object message, String queueName) {
-            try {
-                rabbitTemplate.convertAndSend(queueName, message);
-                logger.info("Message sent to RabbitMQ successfully");
-            } catch (Exception e) {
-                logger.error("Error sending message to RabbitMQ: {}", e.getMessage(), e);
-            }
+        if (outboxEnabled) {
+            enqueue(message, queueName);
+            return;
+        }
+        publishPacer.pace(queueName);
+        switch (publishMode) {
+            case BATCHING -> batchingPublisher.publish(queueName, message);
+            case CONFIRMED -> confirmedPublisher.publish(queueName, message);
+            default -> sendDirect(message, queueName);
+        }
+    }
+
+    //bez potwierdzeń brokera - "opublikowano" nie znaczy "dostarczono"; błąd brokera trafia do wywołującego
+    private void sendDirect(Object message, String queueName) {
+        try {
+            rabbitTemplate.convertAndSend(queueName, message);
+            publisherCounters.published(queueName);
+            logger.debug("Message published to {}", queueName);
+        } catch (Exception e) {
+            publisherCounters.failed(queueName);
+            logger.error("Error sending message to RabbitMQ: {}", e.getMessage(), e);
+            throw new RabbitMessageSendingException("MESSAGE_NOT_SENT");
+        }
+    }
+
+    //zapis do outboxa dołącza do transakcji wywołującego, wysyłkę robi OutboxRelay po commicie
+    private void enqueue(Object message, String queueName) {
+        try {
+            OutboxMessage outboxMessage = OutboxMessage.builder()
+                    .queueName(queueName)
+                    .payloadType(message.getClass().getName())
+                    .payload(objectMapper.writeValueAsString(message))
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            outboxMessageRepository.save(outboxMessage);
+        } catch (JsonProcessingException e) {
+            logger.error("Error writing message to outbox: {}", e.getMessage(), e);
+            throw new RabbitMessageSendingException("MESSAGE_NOT_SENT");
+        }
     }
 }
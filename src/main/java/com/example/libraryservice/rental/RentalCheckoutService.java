@@ -0,0 +1,92 @@
+package com.example.libraryservice.rental;
+
+import com.example.libraryservice.common.enums.RentalLockingMode;
+import com.example.libraryservice.common.exception.model.RentalException;
+import com.example.libraryservice.rental.command.CreateRentalCommand;
+import com.example.libraryservice.rental.model.RentalDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//wybór strategii współbieżności dla wypożyczeń; transakcja startuje dopiero wewnątrz RentalService
+@Service
+public class RentalCheckoutService {
+
+    private final Logger logger = LoggerFactory.getLogger(RentalCheckoutService.class);
+
+    private final RentalService rentalService;
+    private final RentalLockingMode lockingMode;
+    private final int maxAttempts;
+    private final long lockWaitMillis;
+    private final ReentrantLock[] stripes;
+
+    public RentalCheckoutService(RentalService rentalService,
+                                 @Value("${rental.locking-mode:PESSIMISTIC}") RentalLockingMode lockingMode,
+                                 @Value("${rental.optimistic.max-attempts:5}") int maxAttempts,
+                                 @Value("${rental.striped.lock-wait-millis:2000}") long lockWaitMillis,
+                                 @Value("${rental.striped.stripes:64}") int stripeCount) {
+        this.rentalService = rentalService;
+        this.lockingMode = lockingMode;
+        this.maxAttempts = maxAttempts;
+        this.lockWaitMillis = lockWaitMillis;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public RentalDto rentBook(CreateRentalCommand command) {
+        return switch (lockingMode) {
+            case PESSIMISTIC -> rentalService.rentBook(command);
+            case OPTIMISTIC -> rentWithRetry(command);
+            case STRIPED -> rentWithStripeLock(command);
+        };
+    }
+
+    //blokada w procesie ogranicza konflikty wersji, wersjonowanie w bazie chroni przed innymi instancjami
+    private RentalDto rentWithStripeLock(CreateRentalCommand command) {
+        ReentrantLock lock = stripes[Math.floorMod(command.getBookId(), stripes.length)];
+        try {
+            if (!lock.tryLock(lockWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new RentalException("RENTAL_CHECKOUT_BUSY");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RentalException("RENTAL_CHECKOUT_INTERRUPTED");
+        }
+        try {
+            return rentWithRetry(command);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RentalDto rentWithRetry(CreateRentalCommand command) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return rentalService.rentBookOptimistic(command);
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new RentalException("RENTAL_CHECKOUT_CONFLICT");
+                }
+                logger.debug("Rental conflict for book {}, attempt {}", command.getBookId(), attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RentalException("RENTAL_CHECKOUT_INTERRUPTED");
+        }
+    }
+}
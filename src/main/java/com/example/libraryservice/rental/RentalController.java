@@ -1,23 +1,39 @@
 package com.example.libraryservice.rental;
 
+import com.example.libraryservice.rental.command.CreateCartRentalCommand;
 import com.example.libraryservice.rental.command.CreateRentalCommand;
+import com.example.libraryservice.rental.model.FreeWindowDto;
 import com.example.libraryservice.rental.model.RentalDto;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/rentals")
 public class RentalController {
     private final RentalService rentalService;
+    private final RentalCheckoutService rentalCheckoutService;
 
     @PostMapping()
     public ResponseEntity<RentalDto> rentBook(@RequestBody @Valid CreateRentalCommand command) {
-        RentalDto saved = rentalService.rentBook(command);
+        RentalDto saved = rentalCheckoutService.rentBook(command);
+        return new ResponseEntity<>(saved, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/cart")
+    public ResponseEntity<List<RentalDto>> rentBooks(@RequestBody @Valid CreateCartRentalCommand command) {
+        List<RentalDto> saved = rentalService.rentBooks(command);
         return new ResponseEntity<>(saved, HttpStatus.CREATED);
     }
 
@@ -26,4 +42,18 @@ public class RentalController {
         rentalService.returnBook(rentalId);
         return new ResponseEntity<>("Book returned successfully", HttpStatus.OK);
     }
+
+    @GetMapping("/history")
+    public Page<RentalDto> findHistory(@PageableDefault(size = 10) Pageable pageable) {
+        return rentalService.findHistory(pageable);
+    }
+
+    @GetMapping("/books/{bookId}/next-free-window")
+    public ResponseEntity<FreeWindowDto> findNextFreeWindow(@PathVariable int bookId,
+                                                            @RequestParam(required = false)
+                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(defaultValue = "1") int days) {
+        LocalDate fromDate = from != null ? from : LocalDate.now();
+        return new ResponseEntity<>(rentalService.findNextFreeWindow(bookId, fromDate, days), HttpStatus.OK);
+    }
 }
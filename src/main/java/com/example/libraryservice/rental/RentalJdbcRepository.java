@@ -0,0 +1,95 @@
+package com.example.libraryservice.rental;
+
+import com.example.libraryservice.rental.model.RentalDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//operacje wsadowe na wypożyczeniach z pominięciem Hibernate - Rental.id jest IDENTITY, więc INSERT-y szłyby pojedynczo
+@Repository
+@RequiredArgsConstructor
+public class RentalJdbcRepository {
+    private static final String INSERT_RENTAL =
+            "INSERT INTO rental (from_date, to_date, returned, book_id, user_email) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ARCHIVABLE_IDS =
+            "SELECT id FROM rental WHERE returned = ? AND id > ? AND to_date < ? ORDER BY id LIMIT ?";
+
+    private static final String COPY_TO_HISTORY =
+            "INSERT INTO rental_history (id, from_date, to_date, returned, book_id, user_email, archived_at) " +
+                    "SELECT id, from_date, to_date, returned, book_id, user_email, ? FROM rental WHERE returned = ? AND id IN (%s)";
+
+    private static final String DELETE_ARCHIVED =
+            "DELETE FROM rental WHERE returned = ? AND id IN (%s)";
+
+    //historia użytkownika widzi zarówno gorącą tabelę, jak i archiwum
+    private static final String SELECT_USER_HISTORY =
+            "SELECT id, from_date, to_date, returned FROM (" +
+                    "SELECT id, from_date, to_date, returned FROM rental WHERE user_email = ? " +
+                    "UNION ALL " +
+                    "SELECT id, from_date, to_date, returned FROM rental_history WHERE user_email = ?" +
+                    ") h ORDER BY id DESC LIMIT ? OFFSET ?";
+
+    private static final String COUNT_USER_HISTORY =
+            "SELECT (SELECT COUNT(*) FROM rental WHERE user_email = ?) + (SELECT COUNT(*) FROM rental_history WHERE user_email = ?)";
+
+    private static final RowMapper<RentalDto> RENTAL_DTO_MAPPER = (resultSet, rowNum) -> RentalDto.builder()
+            .id(resultSet.getInt("id"))
+            .fromDate(resultSet.getDate("from_date").toLocalDate())
+            .toDate(resultSet.getDate("to_date").toLocalDate())
+            .returned(resultSet.getBoolean("returned"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertBatch(String userEmail, List<Integer> bookIds, LocalDate fromDate, LocalDate toDate) {
+        jdbcTemplate.batchUpdate(INSERT_RENTAL, bookIds, bookIds.size(), (ps, bookId) -> {
+            ps.setDate(1, Date.valueOf(fromDate));
+            ps.setDate(2, Date.valueOf(toDate));
+            ps.setBoolean(3, false);
+            ps.setInt(4, bookId);
+            ps.setString(5, userEmail);
+        });
+    }
+
+    public List<Integer> findArchivableIds(int afterId, LocalDate cutoff, int limit) {
+        return jdbcTemplate.queryForList(SELECT_ARCHIVABLE_IDS, Integer.class, true, afterId, Date.valueOf(cutoff), limit);
+    }
+
+    //kopia i usunięcie w jednej transakcji, więc wiersz jest zawsze w dokładnie jednej tabeli
+    @Transactional
+    public int moveToHistory(List<Integer> ids, LocalDateTime archivedAt) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+
+        List<Object> copyArgs = new ArrayList<>();
+        copyArgs.add(Timestamp.valueOf(archivedAt));
+        copyArgs.add(true);
+        copyArgs.addAll(ids);
+        int copied = jdbcTemplate.update(String.format(COPY_TO_HISTORY, placeholders), copyArgs.toArray());
+
+        List<Object> deleteArgs = new ArrayList<>();
+        deleteArgs.add(true);
+        deleteArgs.addAll(ids);
+        jdbcTemplate.update(String.format(DELETE_ARCHIVED, placeholders), deleteArgs.toArray());
+        return copied;
+    }
+
+    public List<RentalDto> findUserHistory(String userEmail, int limit, long offset) {
+        return jdbcTemplate.query(SELECT_USER_HISTORY, RENTAL_DTO_MAPPER, userEmail, userEmail, limit, offset);
+    }
+
+    public long countUserHistory(String userEmail) {
+        Long count = jdbcTemplate.queryForObject(COUNT_USER_HISTORY, Long.class, userEmail, userEmail);
+        return count != null ? count : 0;
+    }
+}
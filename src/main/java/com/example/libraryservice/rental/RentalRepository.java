@@ -1,14 +1,19 @@
 package com.example.libraryservice.rental;
 
 import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.rental.model.OverdueRentalRow;
 import com.example.libraryservice.rental.model.Rental;
+import com.example.libraryservice.rental.model.RentalSpan;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -17,9 +22,32 @@ public interface RentalRepository extends JpaRepository<Rental, Integer> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Rental> findWithLockingById(int id);
 
-    @Query("SELECT COUNT(r) > 0 FROM Rental r WHERE r.book = :book AND " +
-            "(:fromDate BETWEEN r.fromDate AND r.toDate OR :toDate BETWEEN r.fromDate AND r.toDate)")
+    @Query("SELECT COUNT(r) > 0 FROM Rental r WHERE r.book = :book AND r.returned = false AND " +
+            "r.fromDate <= :toDate AND r.toDate >= :fromDate")
     boolean findOverlappingRentals(@Param("book") Book book,
                                    @Param("fromDate") LocalDate fromDate,
                                    @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT DISTINCT r.book.id FROM Rental r WHERE r.book.id IN :bookIds AND r.returned = false AND " +
+            "r.fromDate <= :toDate AND r.toDate >= :fromDate")
+    List<Integer> findOverlappingBookIds(@Param("bookIds") Collection<Integer> bookIds,
+                                         @Param("fromDate") LocalDate fromDate,
+                                         @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT r FROM Rental r WHERE r.user.email = :email AND r.book.id IN :bookIds AND r.returned = false " +
+            "AND r.fromDate = :fromDate AND r.toDate = :toDate ORDER BY r.book.id")
+    List<Rental> findActiveRentals(@Param("email") String email,
+                                   @Param("bookIds") Collection<Integer> bookIds,
+                                   @Param("fromDate") LocalDate fromDate,
+                                   @Param("toDate") LocalDate toDate);
+
+    @Query("SELECT new com.example.libraryservice.rental.model.OverdueRentalRow(r.id, r.user.email, b.title, r.toDate) " +
+            "FROM Rental r LEFT JOIN r.book b WHERE r.id > :afterId AND r.returned = false AND r.toDate < :today ORDER BY r.id")
+    List<OverdueRentalRow> findOverdueAfter(@Param("afterId") int afterId,
+                                            @Param("today") LocalDate today,
+                                            Pageable pageable);
+
+    @Query("SELECT new com.example.libraryservice.rental.model.RentalSpan(r.id, r.fromDate, r.toDate) " +
+            "FROM Rental r WHERE r.book.id = :bookId AND r.returned = false")
+    List<RentalSpan> findActiveSpansByBookId(@Param("bookId") int bookId);
 }
@@ -4,18 +4,26 @@ import com.example.libraryservice.common.exception.model.*;
 import com.example.libraryservice.monitoring_logs.MonitorMethod;
 import com.example.libraryservice.book.BookRepository;
 import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.rental.command.CreateCartRentalCommand;
 import com.example.libraryservice.rental.command.CreateRentalCommand;
+import com.example.libraryservice.rental.interval.RentalIntervalIndex;
+import com.example.libraryservice.rental.model.FreeWindowDto;
 import com.example.libraryservice.rental.model.RentalDto;
+import com.example.libraryservice.rental.model.RentalSpan;
 import com.example.libraryservice.user.UserRepository;
 import com.example.libraryservice.user.model.User;
 import com.example.libraryservice.rental.model.Rental;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.List;
 import static com.example.libraryservice.mapper.RentalMapper.MAPPER;
 
 @Service
@@ -25,6 +33,8 @@ public class RentalService {
     private final RentalRepository rentalRepository;
     private final UserRepository userRepository;
     private final BookRepository bookRepository;
+    private final RentalIntervalIndex rentalIntervalIndex;
+    private final RentalJdbcRepository rentalJdbcRepository;
 
     @MonitorMethod
     @Transactional
@@ -33,6 +43,63 @@ public class RentalService {
         return MAPPER.mapToDto(savedRental);
     }
 
+    //bez blokad wierszy - konflikt wykrywa podbicie wersji książki przy commicie
+    @MonitorMethod
+    @Transactional
+    public RentalDto rentBookOptimistic(CreateRentalCommand command) {
+        rejectKnownOverlap(command);
+
+        User user = userRepository.findByEmail(getAuthenticatedUsername())
+                .orElseThrow(() -> new UserNotFoundException("USER_NOT_FOUND"));
+        Book book = bookRepository.findWithVersionIncrementById(command.getBookId())
+                .orElseThrow(() -> new BookNotFoundException("BOOK_WITH_ID " + command.getBookId() + " NOT_FOUND"));
+
+        return MAPPER.mapToDto(saveRental(user, book, command));
+    }
+
+    //cały koszyk w jednej transakcji: jedna blokada użytkownika, jedno zapytanie o kolizje, jeden wsad INSERT-ów
+    @MonitorMethod
+    @Transactional
+    public List<RentalDto> rentBooks(CreateCartRentalCommand command) {
+        List<Integer> bookIds = command.getBookIds().stream().distinct().sorted().toList();
+        LocalDate fromDate = command.getFromDate();
+        LocalDate toDate = command.getToDate();
+
+        List<Integer> knownRented = bookIds.stream()
+                .filter(bookId -> rentalIntervalIndex.overlaps(bookId, fromDate, toDate))
+                .toList();
+        if (!knownRented.isEmpty()) {
+            throw new RentalException("BOOKS_ALREADY_RENTED_ON_THESE_DATES " + knownRented);
+        }
+
+        User user = getUserByEmail(getAuthenticatedUsername());
+        List<Book> books = bookRepository.findAllWithLockingByIdIn(bookIds);
+        if (books.size() != bookIds.size()) {
+            List<Integer> foundIds = books.stream().map(Book::getId).toList();
+            List<Integer> missingIds = bookIds.stream().filter(bookId -> !foundIds.contains(bookId)).toList();
+            throw new BookNotFoundException("BOOK_WITH_ID " + missingIds + " NOT_FOUND");
+        }
+
+        List<Integer> rented = rentalRepository.findOverlappingBookIds(bookIds, fromDate, toDate);
+        if (!rented.isEmpty()) {
+            throw new RentalException("BOOKS_ALREADY_RENTED_ON_THESE_DATES " + rented);
+        }
+
+        rentalJdbcRepository.insertBatch(user.getEmail(), bookIds, fromDate, toDate);
+        List<Rental> savedRentals = rentalRepository.findActiveRentals(user.getEmail(), bookIds, fromDate, toDate);
+        savedRentals.forEach(rental -> rentalIntervalIndex.registerRental(rental.getBook().getId(),
+                new RentalSpan(rental.getId(), rental.getFromDate(), rental.getToDate())));
+
+        return savedRentals.stream().map(MAPPER::mapToDto).toList();
+    }
+
+    @MonitorMethod
+    public Page<RentalDto> findHistory(Pageable pageable) {
+        String username = getAuthenticatedUsername();
+        List<RentalDto> content = rentalJdbcRepository.findUserHistory(username, pageable.getPageSize(), pageable.getOffset());
+        return new PageImpl<>(content, pageable, rentalJdbcRepository.countUserHistory(username));
+    }
+
     @Transactional
     @MonitorMethod
     public void returnBook(int rentalId) {
@@ -45,6 +112,18 @@ public class RentalService {
         markRentalAsReturned(rental);
     }
 
+    @MonitorMethod
+    public FreeWindowDto findNextFreeWindow(int bookId, LocalDate fromDate, int days) {
+        if (days < 1) {
+            throw new RentalException("RENTAL_LENGTH_MUST_BE_AT_LEAST_1_DAY");
+        }
+        if (!bookRepository.existsById(bookId)) {
+            throw new BookNotFoundException("BOOK_WITH_ID " + bookId + " NOT_FOUND");
+        }
+        LocalDate start = rentalIntervalIndex.nextFreeStart(bookId, fromDate, days);
+        return new FreeWindowDto(bookId, start, start.plusDays(days - 1L));
+    }
+
     private String getAuthenticatedUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
@@ -61,10 +140,23 @@ public class RentalService {
     }
 
     public Rental createRental(CreateRentalCommand command) {
+        rejectKnownOverlap(command);
+
         String username = getAuthenticatedUsername();
         User user = getUserByEmail(username);
         Book book = getBookById(command.getBookId());
 
+        return saveRental(user, book, command);
+    }
+
+    //szybkie odrzucenie z indeksu, zanim sięgniemy po wiersze
+    private void rejectKnownOverlap(CreateRentalCommand command) {
+        if (rentalIntervalIndex.overlaps(command.getBookId(), command.getFromDate(), command.getToDate())) {
+            throw new RentalException("BOOK_IS_ALREADY_RENTED_ON_THESE_DATES");
+        }
+    }
+
+    private Rental saveRental(User user, Book book, CreateRentalCommand command) {
         if (isAvailableForRental(book, command.getFromDate(), command.getToDate())) {
             throw new RentalException("BOOK_IS_ALREADY_RENTED_ON_THESE_DATES");
         }
@@ -79,7 +171,10 @@ public class RentalService {
         user.getRentals().add(rental);
         book.getRentals().add(rental);
 
-        return rentalRepository.save(rental);
+        Rental savedRental = rentalRepository.save(rental);
+        rentalIntervalIndex.registerRental(book.getId(),
+                new RentalSpan(savedRental.getId(), savedRental.getFromDate(), savedRental.getToDate()));
+        return savedRental;
     }
 
     public boolean isAvailableForRental(Book book, LocalDate fromDate, LocalDate toDate) {
@@ -92,6 +187,9 @@ public class RentalService {
         }
         rental.setReturned(true);
         rentalRepository.save(rental);
+        if (rental.getBook() != null) {
+            rentalIntervalIndex.unregisterRental(rental.getBook().getId(), rental.getId());
+        }
     }
 
     public void validateUserOwnership(String username, Rental rental) {
@@ -0,0 +1,83 @@
+package com.example.libraryservice.rental.archive;
+
+import com.example.libraryservice.common.job.SchedulerLockService;
+import com.example.libraryservice.rental.RentalJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//przenosi zwrócone wypożyczenia starsze niż horyzont do rental_history, małymi porcjami z przerwami
+@Component
+public class RentalArchiver {
+    public static final String JOB_NAME = "rental-archiver";
+
+    private final RentalJdbcRepository rentalJdbcRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final int horizonDays;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final Duration lease;
+    private final Logger logger = LoggerFactory.getLogger(RentalArchiver.class);
+
+    public RentalArchiver(RentalJdbcRepository rentalJdbcRepository,
+                          SchedulerLockService schedulerLockService,
+                          @Value("${rental.archive.horizon-days:180}") int horizonDays,
+                          @Value("${rental.archive.batch-size:500}") int batchSize,
+                          @Value("${rental.archive.pause-millis:200}") long pauseMillis,
+                          @Value("${rental.archive.lease-seconds:3600}") long leaseSeconds) {
+        this.rentalJdbcRepository = rentalJdbcRepository;
+        this.schedulerLockService = schedulerLockService;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+    }
+
+    @Scheduled(cron = "${rental.archive.cron:0 30 2 * * ?}")
+    public void archiveReturnedRentals() {
+        schedulerLockService.runExclusively(JOB_NAME, lease, () -> {
+            int archived = archive(LocalDate.now().minusDays(horizonDays));
+            logger.info("Rental archive finished, {} rentals moved to history", archived);
+        });
+    }
+
+    public int archive(LocalDate cutoff) {
+        int afterId = 0;
+        int archived = 0;
+
+        while (true) {
+            List<Integer> ids = rentalJdbcRepository.findArchivableIds(afterId, cutoff, batchSize);
+            if (ids.isEmpty()) {
+                return archived;
+            }
+
+            archived += rentalJdbcRepository.moveToHistory(ids, LocalDateTime.now());
+            afterId = ids.get(ids.size() - 1);
+
+            if (ids.size() < batchSize || !pause()) {
+                return archived;
+            }
+        }
+    }
+
+    //przerwa między porcjami oddaje bazę ruchowi produkcyjnemu
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
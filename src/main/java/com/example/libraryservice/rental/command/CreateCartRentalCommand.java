@@ -0,0 +1,25 @@
+package com.example.libraryservice.rental.command;
+
+import com.example.libraryservice.common.validator.DateRange;
+import com.example.libraryservice.common.validator.FromDateBeforeToDate;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@FromDateBeforeToDate
+public class CreateCartRentalCommand implements DateRange {
+
+    @NotEmpty
+    @Size(max = 50)
+    private List<@NotNull Integer> bookIds;
+    @Future
+    private LocalDate fromDate;
+    @Future
+    private LocalDate toDate;
+}
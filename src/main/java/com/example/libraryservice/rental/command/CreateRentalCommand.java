@@ -1,5 +1,6 @@
 package com.example.libraryservice.rental.command;
 
+import com.example.libraryservice.common.validator.DateRange;
 import com.example.libraryservice.common.validator.FromDateBeforeToDate;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Future;
@@ -9,7 +10,7 @@ import java.time.LocalDate;
 
 @Data
 @FromDateBeforeToDate
-public class CreateRentalCommand {
+public class CreateRentalCommand implements DateRange {
 
     @Future
     private LocalDate fromDate;
@@ -0,0 +1,82 @@
+package com.example.libraryservice.rental.interval;
+
+import com.example.libraryservice.rental.model.RentalSpan;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//rozłączne bloki zajętych dni jednej książki, posortowane po dacie początku (daty włącznie)
+class BookTimeline {
+    private final TreeMap<LocalDate, Block> blocks = new TreeMap<>();
+    private final Map<Integer, Block> blocksByRental = new HashMap<>();
+
+    BookTimeline(Collection<RentalSpan> spans) {
+        spans.forEach(this::add);
+    }
+
+    synchronized boolean overlaps(LocalDate fromDate, LocalDate toDate) {
+        Map.Entry<LocalDate, Block> candidate = blocks.floorEntry(toDate);
+        return candidate != null && !candidate.getValue().toDate.isBefore(fromDate);
+    }
+
+    synchronized LocalDate nextFreeStart(LocalDate fromDate, int days) {
+        LocalDate start = fromDate;
+        while (true) {
+            Map.Entry<LocalDate, Block> candidate = blocks.floorEntry(start.plusDays(days - 1L));
+            if (candidate == null || candidate.getValue().toDate.isBefore(start)) {
+                return start;
+            }
+            start = candidate.getValue().toDate.plusDays(1);
+        }
+    }
+
+    synchronized void add(RentalSpan span) {
+        if (blocksByRental.containsKey(span.getRentalId())) {
+            return;
+        }
+        LocalDate fromDate = span.getFromDate();
+        LocalDate toDate = span.getToDate();
+        List<RentalSpan> members = new ArrayList<>();
+        members.add(span);
+
+        Map.Entry<LocalDate, Block> overlapping = blocks.floorEntry(toDate);
+        while (overlapping != null && !overlapping.getValue().toDate.isBefore(fromDate)) {
+            Block block = overlapping.getValue();
+            blocks.remove(block.fromDate);
+            fromDate = fromDate.isBefore(block.fromDate) ? fromDate : block.fromDate;
+            toDate = toDate.isAfter(block.toDate) ? toDate : block.toDate;
+            members.addAll(block.members);
+            overlapping = blocks.floorEntry(toDate);
+        }
+
+        Block merged = new Block(fromDate, toDate, members);
+        blocks.put(fromDate, merged);
+        members.forEach(member -> blocksByRental.put(member.getRentalId(), merged));
+    }
+
+    synchronized void remove(int rentalId) {
+        Block block = blocksByRental.remove(rentalId);
+        if (block == null) {
+            return;
+        }
+        blocks.remove(block.fromDate);
+        for (RentalSpan member : block.members) {
+            if (member.getRentalId() != rentalId) {
+                blocksByRental.remove(member.getRentalId());
+                add(member);
+            }
+        }
+    }
+
+    private static class Block {
+        private final LocalDate fromDate;
+        private final LocalDate toDate;
+        private final List<RentalSpan> members;
+
+        private Block(LocalDate fromDate, LocalDate toDate, List<RentalSpan> members) {
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+            this.members = members;
+        }
+    }
+}
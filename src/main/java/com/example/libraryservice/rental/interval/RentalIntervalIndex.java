@@ -0,0 +1,78 @@
+package com.example.libraryservice.rental.interval;
+
+import com.example.libraryservice.rental.RentalRepository;
+import com.example.libraryservice.rental.model.RentalSpan;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+//osie czasu książek ładowane leniwie z tabeli rental, baza danych pozostaje ostatecznym strażnikiem
+@Component
+public class RentalIntervalIndex {
+
+    private final RentalRepository rentalRepository;
+    private final Cache<Integer, BookTimeline> timelines;
+
+    public RentalIntervalIndex(RentalRepository rentalRepository,
+                               @Value("${rental.interval-index.max-books:100000}") long maxBooks,
+                               @Value("${rental.interval-index.ttl-seconds:60}") long ttlSeconds) {
+        this.rentalRepository = rentalRepository;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxBooks)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean overlaps(int bookId, LocalDate fromDate, LocalDate toDate) {
+        return timeline(bookId).overlaps(fromDate, toDate);
+    }
+
+    public LocalDate nextFreeStart(int bookId, LocalDate fromDate, int days) {
+        return timeline(bookId).nextFreeStart(fromDate, days);
+    }
+
+    public void registerRental(int bookId, RentalSpan span) {
+        afterCommit(() -> {
+            BookTimeline timeline = timelines.getIfPresent(bookId);
+            if (timeline != null) {
+                timeline.add(span);
+            }
+        });
+    }
+
+    public void unregisterRental(int bookId, int rentalId) {
+        afterCommit(() -> {
+            BookTimeline timeline = timelines.getIfPresent(bookId);
+            if (timeline != null) {
+                timeline.remove(rentalId);
+            }
+        });
+    }
+
+    public void invalidate(int bookId) {
+        timelines.invalidate(bookId);
+    }
+
+    private BookTimeline timeline(int bookId) {
+        return timelines.get(bookId, id -> new BookTimeline(rentalRepository.findActiveSpansByBookId(id)));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.libraryservice.rental.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FreeWindowDto {
+    private int bookId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+}
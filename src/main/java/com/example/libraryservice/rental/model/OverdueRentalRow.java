@@ -0,0 +1,15 @@
+package com.example.libraryservice.rental.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class OverdueRentalRow {
+    private Integer rentalId;
+    private String userEmail;
+    private String bookTitle;
+    private LocalDate toDate;
+}
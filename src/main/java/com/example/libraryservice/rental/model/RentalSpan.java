@@ -0,0 +1,14 @@
+package com.example.libraryservice.rental.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+@Getter
+@AllArgsConstructor
+public class RentalSpan {
+    private Integer rentalId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+}
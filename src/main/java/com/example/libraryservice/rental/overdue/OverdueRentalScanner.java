@@ -0,0 +1,161 @@
+package com.example.libraryservice.rental.overdue;
+
+import com.example.libraryservice.common.job.JobCheckpoint;
+import com.example.libraryservice.common.job.JobCheckpointRepository;
+import com.example.libraryservice.common.job.SchedulerLockService;
+import com.example.libraryservice.rabbit.model.OverdueRentalInfo;
+import com.example.libraryservice.rabbit.model.OverdueReminderBatchRabbit;
+import com.example.libraryservice.rabbit.model.OverdueReminderRabbit;
+import com.example.libraryservice.rabbit.service.RabbitMqService;
+import com.example.libraryservice.rental.RentalRepository;
+import com.example.libraryservice.rental.model.OverdueRentalRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//skan zaległych wypożyczeń porcjami po id; w pamięci jest najwyżej jedna fala porcji
+@Component
+public class OverdueRentalScanner {
+    public static final String JOB_NAME = "overdue-rental-scanner";
+
+    private final RentalRepository rentalRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final RabbitMqService rabbitMqService;
+    private final SchedulerLockService schedulerLockService;
+    private final String queueName;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration lease;
+    private final ExecutorService executorService;
+    private final Logger logger = LoggerFactory.getLogger(OverdueRentalScanner.class);
+
+    public OverdueRentalScanner(RentalRepository rentalRepository,
+                                JobCheckpointRepository jobCheckpointRepository,
+                                RabbitMqService rabbitMqService,
+                                SchedulerLockService schedulerLockService,
+                                @Value("${overdue-queue-name:overdue-queue}") String queueName,
+                                @Value("${overdue.scanner.chunk-size:1000}") int chunkSize,
+                                @Value("${overdue.scanner.parallelism:4}") int parallelism,
+                                @Value("${overdue.scanner.lease-seconds:3600}") long leaseSeconds) {
+        this.rentalRepository = rentalRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.rabbitMqService = rabbitMqService;
+        this.schedulerLockService = schedulerLockService;
+        this.queueName = queueName;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @Scheduled(cron = "${overdue.scanner.cron:0 0 8 * * ?}")
+    public void scanOverdueRentals() {
+        //skan robi tylko jeden węzeł; przerwany przebieg dokańcza resumeIncompleteScan
+        schedulerLockService.runExclusively(JOB_NAME, lease, () -> {
+            int processed = scan(LocalDate.now());
+            logger.info("Overdue rental scan finished, {} rentals processed", processed);
+        });
+    }
+
+    //dzisiejszy przebieg przerwany awarią węzła albo nieudaną porcją jest wznawiany od checkpointu tego samego dnia;
+    //następnego dnia pełny przebieg i tak obejmuje wszystkie zaległe wypożyczenia
+    @Scheduled(fixedDelayString = "${overdue.scanner.retry-millis:600000}",
+            initialDelayString = "${overdue.scanner.retry-millis:600000}")
+    public void resumeIncompleteScan() {
+        LocalDate today = LocalDate.now();
+        boolean incomplete = jobCheckpointRepository.findById(JOB_NAME)
+                .filter(checkpoint -> today.equals(checkpoint.getRunDate()) && !checkpoint.isCompleted())
+                .isPresent();
+        if (incomplete) {
+            logger.info("Resuming incomplete overdue rental scan");
+            scanOverdueRentals();
+        }
+    }
+
+    public int scan(LocalDate today) {
+        //punkt kontrolny z dzisiejszego przebiegu pozwala wznowić pracę po awarii
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(JOB_NAME)
+                .filter(existing -> today.equals(existing.getRunDate()))
+                .orElseGet(() -> JobCheckpoint.builder().jobName(JOB_NAME).runDate(today).build());
+        if (checkpoint.isCompleted()) {
+            return 0;
+        }
+        //zapis od razu, żeby także awaria pierwszej fali zostawiła niedokończony przebieg do wznowienia
+        if (checkpoint.getUpdatedAt() == null) {
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            jobCheckpointRepository.save(checkpoint);
+        }
+
+        int afterId = checkpoint.getLastProcessedId();
+        int processed = 0;
+        boolean exhausted = false;
+
+        while (!exhausted) {
+            List<Future<?>> wave = new ArrayList<>();
+            for (int i = 0; i < parallelism && !exhausted; i++) {
+                List<OverdueRentalRow> chunk = rentalRepository.findOverdueAfter(afterId, today, PageRequest.of(0, chunkSize));
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).getRentalId();
+                    processed += chunk.size();
+                    wave.add(executorService.submit(() -> publishReminders(chunk)));
+                }
+                exhausted = chunk.size() < chunkSize;
+            }
+
+            if (!awaitWave(wave)) {
+                return processed;
+            }
+
+            checkpoint.setLastProcessedId(afterId);
+            checkpoint.setCompleted(exhausted);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            jobCheckpointRepository.save(checkpoint);
+        }
+
+        return processed;
+    }
+
+    private boolean awaitWave(List<Future<?>> wave) {
+        try {
+            for (Future<?> future : wave) {
+                future.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Overdue rental scan interrupted, will resume from the last checkpoint");
+        } catch (ExecutionException e) {
+            logger.error("Overdue rental chunk failed, will resume from the last checkpoint", e.getCause());
+        }
+        return false;
+    }
+
+    private void publishReminders(List<OverdueRentalRow> chunk) {
+        Map<String, OverdueReminderRabbit> remindersByUser = new LinkedHashMap<>();
+        for (OverdueRentalRow row : chunk) {
+            remindersByUser.computeIfAbsent(row.getUserEmail(),
+                            email -> new OverdueReminderRabbit(email, new ArrayList<>()))
+                    .getRentals()
+                    .add(new OverdueRentalInfo(row.getRentalId(), row.getBookTitle(), row.getToDate()));
+        }
+        rabbitMqService.send(new OverdueReminderBatchRabbit(new ArrayList<>(remindersByUser.values())), queueName);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+}
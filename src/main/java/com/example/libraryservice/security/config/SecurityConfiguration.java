@@ -28,12 +28,16 @@ public class SecurityConfiguration {
                 .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.POST, "/api/v1/users/register").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/v1/users/authenticate").permitAll()
+                .requestMatchers(HttpMethod.PUT, "/api/v1/users/digest-slot").hasAuthority("CUSTOMER")
                 .requestMatchers(HttpMethod.POST, "/api/v1/sub/").hasAuthority("CUSTOMER")
                 .requestMatchers(HttpMethod.GET, "/api/v1/sub/").hasAuthority("CUSTOMER")
                 .requestMatchers(HttpMethod.DELETE, "/api/v1/sub/").hasAuthority("CUSTOMER")
                 .requestMatchers(HttpMethod.POST, "/api/v1/books/").hasAuthority("EMPLOYEE")
+                .requestMatchers(HttpMethod.POST, "/api/v1/books/import").hasAuthority("EMPLOYEE")
+                .requestMatchers(HttpMethod.PATCH, "/api/v1/books/block", "/api/v1/books/unblock").hasAuthority("EMPLOYEE")
                 .requestMatchers(HttpMethod.GET, "/api/v1/books/").hasAnyAuthority("EMPLOYEE", "CUSTOMER")
                 .requestMatchers("/api/v1/rentals/").hasAuthority("EMPLOYEE")
+                .requestMatchers("/api/v1/monitoring/**").hasAuthority("EMPLOYEE")
                 .requestMatchers(HttpMethod.DELETE, "/api/v1/users/unsubscribe").hasAuthority("CUSTOMER")
                 .requestMatchers(HttpMethod.POST, "/api/v1/users/subscribe").hasAuthority("CUSTOMER")
                 .anyRequest().authenticated()
@@ -1,5 +1,6 @@
 package com.example.libraryservice.subscription;
 
+import com.example.libraryservice.subscription.command.BulkSubscriptionCommand;
 import com.example.libraryservice.subscription.command.CreateSubscriptionCommand;
 import com.example.libraryservice.subscription.model.Subscription;
 import com.example.libraryservice.subscription.model.SubscriptionDto;
@@ -12,6 +13,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 import static com.example.libraryservice.mapper.SubscriptionMapper.MAPPER;
 
 
@@ -28,6 +31,12 @@ public class SubscriptionController {
         return new ResponseEntity<>(saved, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<SubscriptionDto>> saveAll(@RequestBody @Valid BulkSubscriptionCommand command) {
+        List<SubscriptionDto> saved = subscriptionService.saveAll(command);
+        return new ResponseEntity<>(saved, HttpStatus.CREATED);
+    }
+
     @GetMapping()
     public Page<SubscriptionDto> findAll(@PageableDefault(size = 10) Pageable pageable) {
         Page<Subscription> subscriptionPage = subscriptionService.findAll(pageable);
@@ -39,4 +48,10 @@ public class SubscriptionController {
         subscriptionService.unsubscribeToCategory(bookCategory);
         return new ResponseEntity<>("Category unsubscribed success!", HttpStatus.NO_CONTENT);
     }
+
+    @DeleteMapping("/bulk")
+    public ResponseEntity<String> unsubscribeFromCategories(@RequestParam List<String> bookCategories) {
+        int unsubscribed = subscriptionService.unsubscribeFromCategories(bookCategories);
+        return new ResponseEntity<>(unsubscribed + " categories unsubscribed", HttpStatus.NO_CONTENT);
+    }
 }
@@ -0,0 +1,47 @@
+package com.example.libraryservice.subscription;
+
+import com.example.libraryservice.common.jdbc.StreamingJdbc;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+//pełne przejścia po aktywnych subskrypcjach (podsumowanie, budowa indeksu) przez pulę strumieniową
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionJdbcRepository {
+    //pary (kategoria, email) posortowane do grupowania w jednym przejściu; email pochodzi z klucza obcego, bez złączenia
+    private static final String SELECT_ACTIVE_SUBSCRIBERS =
+            "SELECT category_name, user_email FROM subscription WHERE active = ? AND category_name IN (%s) " +
+                    "ORDER BY category_name, user_email";
+
+    private static final String SELECT_ALL_ACTIVE_SUBSCRIBERS =
+            "SELECT category_name, user_email FROM subscription WHERE active = ?";
+
+    private final StreamingJdbc streamingJdbc;
+
+    public void forEachActiveSubscriber(Collection<String> categoryNames, Consumer<CategorySubscriber> consumer) {
+        List<String> categories = List.copyOf(categoryNames);
+        String placeholders = String.join(", ", Collections.nCopies(categories.size(), "?"));
+        streamingJdbc.query(String.format(SELECT_ACTIVE_SUBSCRIBERS, placeholders), statement -> {
+            statement.setBoolean(1, true);
+            for (int i = 0; i < categories.size(); i++) {
+                statement.setString(i + 2, categories.get(i));
+            }
+        }, toSubscriber(consumer));
+    }
+
+    public void forEachActiveSubscriber(Consumer<CategorySubscriber> consumer) {
+        streamingJdbc.query(SELECT_ALL_ACTIVE_SUBSCRIBERS, statement -> statement.setBoolean(1, true), toSubscriber(consumer));
+    }
+
+    private RowCallbackHandler toSubscriber(Consumer<CategorySubscriber> consumer) {
+        return resultSet -> consumer.accept(
+                new CategorySubscriber(resultSet.getString("category_name"), resultSet.getString("user_email")));
+    }
+}
@@ -1,14 +1,36 @@
 package com.example.libraryservice.subscription;
 
+import com.example.libraryservice.subscription.model.CategorySubscriber;
 import com.example.libraryservice.subscription.model.Subscription;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 public interface SubscriptionRepository extends JpaRepository<Subscription, Integer> {
 
     @Query("SELECT s FROM Subscription s JOIN FETCH s.user WHERE s.categoryName = :categoryName AND s.active = :active")
     Slice<Subscription> findSubscriptionsByCategoryNameAndActiveFetchUser(String categoryName, boolean active, Pageable pageable);
 
+    //aktualny stan subskrypcji wskazanych użytkowników - indeks podmienia nim ich wpisy
+    @Query("SELECT new com.example.libraryservice.subscription.model.CategorySubscriber(s.categoryName, s.user.email) " +
+            "FROM Subscription s WHERE s.active = true AND s.user.email IN :emails")
+    List<CategorySubscriber> findActiveSubscribersByEmails(Collection<String> emails);
+
+    //zapytania po unikalnym indeksie (user_email, category_name), bez ładowania kolekcji użytkownika
+    @Query("SELECT s FROM Subscription s WHERE s.user.email = :email AND s.categoryName = :categoryName")
+    Optional<Subscription> findByUserEmailAndCategoryName(String email, String categoryName);
+
+    @Query("SELECT s FROM Subscription s WHERE s.user.email = :email AND s.categoryName IN :categoryNames")
+    List<Subscription> findByUserEmailAndCategoryNameIn(String email, Collection<String> categoryNames);
+
+    @Modifying
+    @Query("UPDATE Subscription s SET s.active = false " +
+            "WHERE s.user.email = :email AND s.categoryName IN :categoryNames AND s.active = true")
+    int deactivate(String email, Collection<String> categoryNames);
 }
@@ -2,18 +2,28 @@ package com.example.libraryservice.subscription;
 
 import com.example.libraryservice.common.exception.model.SubscriptionException;
 import com.example.libraryservice.monitoring_logs.MonitorMethod;
+import com.example.libraryservice.subscription.command.BulkSubscriptionCommand;
 import com.example.libraryservice.subscription.command.CreateSubscriptionCommand;
+import com.example.libraryservice.subscription.index.SubscriptionIndex;
 import com.example.libraryservice.subscription.model.Subscription;
 import com.example.libraryservice.subscription.model.SubscriptionDto;
 import com.example.libraryservice.user.UserRepository;
 import com.example.libraryservice.user.model.User;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.example.libraryservice.mapper.SubscriptionMapper.MAPPER;
 
@@ -23,6 +33,7 @@ public class SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
     private final UserRepository userRepository;
+    private final SubscriptionIndex subscriptionIndex;
 
     @MonitorMethod
     public Page<Subscription> findAll(Pageable pageable) {
@@ -30,30 +41,73 @@ public class SubscriptionService {
     }
 
     @MonitorMethod
+    @Transactional
     public SubscriptionDto save(CreateSubscriptionCommand command) {
         Subscription saved = createSubscriptionSave(command);
         return MAPPER.mapToDto(saved);
     }
 
     @MonitorMethod
-    public void unsubscribeToCategory(String bookCategory) {
+    @Transactional
+    public List<SubscriptionDto> saveAll(BulkSubscriptionCommand command) {
         String username = getAuthenticatedUsername();
-        User user = getUserByEmail(username);
-        if (user.getSubscriptions() == null) {
-            throw new SubscriptionException("USER_HAS_N0T_SUBSCRIPTIONS");
+        Set<String> requested = new LinkedHashSet<>(command.getCategoryNames());
+        Map<String, Subscription> existing = subscriptionRepository.findByUserEmailAndCategoryNameIn(username, requested).stream()
+                .collect(Collectors.toMap(Subscription::getCategoryName, Function.identity()));
+
+        //już aktywne kategorie są pomijane, więc ponowienie tego samego żądania niczego nie psuje
+        User user = null;
+        List<Subscription> toSave = new ArrayList<>();
+        for (String categoryName : requested) {
+            Subscription subscription = existing.get(categoryName);
+            if (subscription != null && subscription.isActive()) {
+                continue;
+            }
+            if (subscription == null) {
+                if (user == null) {
+                    user = getUserByEmail(username);
+                }
+                subscription = newSubscription(user, categoryName);
+            } else {
+                reactivate(subscription);
+            }
+            toSave.add(subscription);
         }
-        Subscription subscriptionToRemove = user.getSubscriptions().stream()
-                .filter(subscription -> subscription.getCategoryName().equals(bookCategory))
-                .findFirst()
-                .orElse(null);
 
-        if (subscriptionToRemove == null) {
+        List<Subscription> saved = saveUnique(() -> subscriptionRepository.saveAll(toSave));
+        subscriptionIndex.subscribe(username, saved.stream().map(Subscription::getCategoryName).toList());
+        return saved.stream().map(MAPPER::mapToDto).toList();
+    }
+
+    @MonitorMethod
+    @Transactional
+    public void unsubscribeToCategory(String bookCategory) {
+        String username = getAuthenticatedUsername();
+        if (subscriptionRepository.deactivate(username, List.of(bookCategory)) == 0) {
             throw new SubscriptionException("CATEGORY_IS_NOT_SUBSCRIBED");
         }
-        subscriptionToRemove.setActive(false);
+        subscriptionIndex.unsubscribe(username, List.of(bookCategory));
+    }
 
-        user.getSubscriptions().remove(subscriptionToRemove);
-        userRepository.save(user);
+    @MonitorMethod
+    @Transactional
+    public int unsubscribeFromCategories(List<String> bookCategories) {
+        if (bookCategories.size() > BulkSubscriptionCommand.MAX_CATEGORIES) {
+            throw new SubscriptionException("TOO_MANY_CATEGORIES");
+        }
+        String username = getAuthenticatedUsername();
+        Set<String> requested = new LinkedHashSet<>(bookCategories);
+        //indeks dostaje tylko kategorie, które naprawdę były aktywne
+        List<String> active = subscriptionRepository.findByUserEmailAndCategoryNameIn(username, requested).stream()
+                .filter(Subscription::isActive)
+                .map(Subscription::getCategoryName)
+                .toList();
+        if (active.isEmpty()) {
+            return 0;
+        }
+        int unsubscribed = subscriptionRepository.deactivate(username, active);
+        subscriptionIndex.unsubscribe(username, active);
+        return unsubscribed;
     }
 
     public String getAuthenticatedUsername() {
@@ -68,16 +122,44 @@ public class SubscriptionService {
 
     public Subscription createSubscriptionSave(CreateSubscriptionCommand command) {
         String username = getAuthenticatedUsername();
-        User user = getUserByEmail(username);
-        if (user.getSubscriptions().stream().anyMatch(subscription -> subscription.getCategoryName().equals(command.getCategoryName()))) {
+        String categoryName = command.getCategoryName();
+        Subscription subscription = subscriptionRepository.findByUserEmailAndCategoryName(username, categoryName)
+                .orElse(null);
+        if (subscription != null && subscription.isActive()) {
             throw new SubscriptionException("CATEGORY_IS_ALREADY_SUBSCRIBED");
         }
         command.setActive(true);
+        if (subscription == null) {
+            subscription = newSubscription(getUserByEmail(username), categoryName);
+        } else {
+            //unikalny indeks nie pozwala na drugi wiersz, więc wyłączona subskrypcja wraca do życia
+            reactivate(subscription);
+        }
+        Subscription toSave = subscription;
+        Subscription saved = saveUnique(() -> subscriptionRepository.save(toSave));
+        subscriptionIndex.subscribe(username, List.of(categoryName));
+        return saved;
+    }
+
+    private Subscription newSubscription(User user, String categoryName) {
         Subscription subscription = new Subscription();
         subscription.setUser(user);
-        subscription.setCategoryName(command.getCategoryName());
-        subscription.setActive(command.isActive());
-        user.getSubscriptions().add(subscription);
-        return subscriptionRepository.save(subscription);
+        subscription.setCategoryName(categoryName);
+        subscription.setActive(true);
+        return subscription;
+    }
+
+    private void reactivate(Subscription subscription) {
+        subscription.setActive(true);
+        subscription.setCreationDate(LocalDate.now());
+    }
+
+    //identity wstawia wiersz od razu, więc wyścig dwóch żądań kończy się tu naruszeniem unikalnego indeksu
+    private <T> T saveUnique(Supplier<T> save) {
+        try {
+            return save.get();
+        } catch (DataIntegrityViolationException e) {
+            throw new SubscriptionException("CATEGORY_IS_ALREADY_SUBSCRIBED");
+        }
     }
 }
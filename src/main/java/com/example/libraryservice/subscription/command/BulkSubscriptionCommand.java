@@ -0,0 +1,17 @@
+package com.example.libraryservice.subscription.command;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkSubscriptionCommand {
+    public static final int MAX_CATEGORIES = 100;
+
+    @NotEmpty
+    @Size(max = MAX_CATEGORIES)
+    private List<@NotBlank String> categoryNames;
+}
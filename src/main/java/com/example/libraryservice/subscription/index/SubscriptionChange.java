@@ -0,0 +1,22 @@
+package com.example.libraryservice.subscription.index;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//wpis "subskrypcje tego użytkownika się zmieniły" - jeden na transakcję, węzły doczytują z niego zmiany do indeksu
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(name = "subscription_change")
+public class SubscriptionChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String userEmail;
+    private LocalDateTime createdAt;
+}
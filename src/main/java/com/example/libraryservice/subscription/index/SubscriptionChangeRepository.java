@@ -0,0 +1,25 @@
+package com.example.libraryservice.subscription.index;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SubscriptionChangeRepository extends JpaRepository<SubscriptionChange, Long> {
+
+    @Query("SELECT c FROM SubscriptionChange c WHERE c.id > :afterId ORDER BY c.id")
+    List<SubscriptionChange> findAfter(long afterId, Pageable pageable);
+
+    @Query("SELECT MAX(c.id) FROM SubscriptionChange c WHERE c.createdAt < :before")
+    Optional<Long> findMaxIdCreatedBefore(LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubscriptionChange c WHERE c.createdAt < :before")
+    int deleteCreatedBefore(LocalDateTime before);
+}
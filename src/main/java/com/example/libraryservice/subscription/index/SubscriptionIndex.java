@@ -0,0 +1,343 @@
+package com.example.libraryservice.subscription.index;
+
+import com.example.libraryservice.subscription.SubscriptionJdbcRepository;
+import com.example.libraryservice.subscription.SubscriptionRepository;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+//indeks kategoria -> subskrybenci w pamięci: każdy email dostaje zwarte id, a kategoria trzyma BitSet tych id,
+//dzięki czemu rozsyłka nie pyta bazy. Każdy węzeł ma własną kopię: zapis subskrypcji dopisuje email do subscription_change,
+//a węzły co refresh-millis doczytują nowe wpisy i podmieniają wpisy tych użytkowników aktualnym stanem z bazy.
+//Stan czytany z bazy nie zależy od kolejności commitów, więc wpis przetworzony drugi raz niczego nie psuje
+@Component
+public class SubscriptionIndex {
+    private static final int CHANGE_PAGE_SIZE = 500;
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionJdbcRepository subscriptionJdbcRepository;
+    private final SubscriptionChangeRepository subscriptionChangeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration refreshInterval;
+    private final Duration gapGrace;
+    private final Duration changeRetention;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Logger logger = LoggerFactory.getLogger(SubscriptionIndex.class);
+
+    private Snapshot snapshot = new Snapshot();
+    private volatile boolean ready;
+    private volatile long lastCaughtUpNanos;
+    //wszystkie wpisy do watermark włącznie są w indeksie; powyżej - przetworzone wpisy i luki po niezatwierdzonych transakcjach
+    private long watermark;
+    private final NavigableSet<Long> appliedAboveWatermark = new TreeSet<>();
+    private final Map<Long, Long> gapsFirstSeenNanos = new HashMap<>();
+    //użytkownicy zmienieni lokalnie - lokalna zmiana mogła wyprzedzić równoległe doczytanie, więc są doczytywani jeszcze raz
+    private final Set<String> pendingReload = ConcurrentHashMap.newKeySet();
+
+    public SubscriptionIndex(SubscriptionRepository subscriptionRepository,
+                             SubscriptionJdbcRepository subscriptionJdbcRepository,
+                             SubscriptionChangeRepository subscriptionChangeRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${subscription.index.refresh-millis:5000}") long refreshMillis,
+                             @Value("${subscription.index.gap-grace-seconds:60}") long gapGraceSeconds,
+                             @Value("${subscription.index.change-retention-hours:24}") long changeRetentionHours) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionJdbcRepository = subscriptionJdbcRepository;
+        this.subscriptionChangeRepository = subscriptionChangeRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.refreshInterval = Duration.ofMillis(refreshMillis);
+        this.gapGrace = Duration.ofSeconds(gapGraceSeconds);
+        this.changeRetention = Duration.ofHours(changeRetentionHours);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> rebuildInTransaction());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    //doczytuje zmiany z innych węzłów; węzeł, który nie nadążał dłużej niż retencja wpisów, buduje indeks od nowa
+    @Scheduled(fixedDelayString = "${subscription.index.refresh-millis:5000}",
+            initialDelayString = "${subscription.index.refresh-millis:5000}")
+    public void refresh() {
+        if (!ready) {
+            rebuild();
+            return;
+        }
+        if (System.nanoTime() - lastCaughtUpNanos > changeRetention.toNanos()) {
+            logger.warn("Subscription index fell behind the change log retention, rebuilding");
+            rebuild();
+            return;
+        }
+        refreshLock.lock();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> catchUp());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${subscription.index.prune-millis:3600000}")
+    public void pruneChanges() {
+        int deleted = subscriptionChangeRepository.deleteCreatedBefore(LocalDateTime.now().minus(changeRetention));
+        if (deleted > 0) {
+            logger.info("Pruned {} subscription change log entries", deleted);
+        }
+    }
+
+    private void rebuildInTransaction() {
+        //wpisy z okna gapGrace mogą należeć do transakcji zatwierdzonych po odczycie, więc są odtwarzane ponownie
+        long builtFrom = subscriptionChangeRepository.findMaxIdCreatedBefore(LocalDateTime.now().minus(gapGrace)).orElse(0L);
+        Snapshot rebuilt = new Snapshot();
+        subscriptionJdbcRepository.forEachActiveSubscriber(subscriber -> rebuilt.add(subscriber.getCategoryName(), subscriber.getUserEmail()));
+
+        lock.writeLock().lock();
+        try {
+            snapshot = rebuilt;
+            watermark = builtFrom;
+            appliedAboveWatermark.clear();
+            gapsFirstSeenNanos.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        catchUp();
+        logger.info("Subscription index rebuilt: {} categories, {} subscribers, change log at {}",
+                rebuilt.categories.size(), rebuilt.emailCount, watermark);
+    }
+
+    private void catchUp() {
+        long after = watermark;
+        List<SubscriptionChange> changes;
+        do {
+            changes = subscriptionChangeRepository.findAfter(after, PageRequest.of(0, CHANGE_PAGE_SIZE));
+            Set<String> emails = new HashSet<>();
+            for (SubscriptionChange change : changes) {
+                if (appliedAboveWatermark.add(change.getId())) {
+                    emails.add(change.getUserEmail());
+                }
+                after = change.getId();
+            }
+            if (!emails.isEmpty()) {
+                reload(emails);
+            }
+        } while (changes.size() == CHANGE_PAGE_SIZE);
+        Set<String> local = new HashSet<>();
+        pendingReload.removeIf(local::add);
+        if (!local.isEmpty()) {
+            reload(local);
+        }
+        advanceWatermark();
+        lastCaughtUpNanos = System.nanoTime();
+    }
+
+    //identyfikatory nadawane są przy wstawieniu, a widoczne po commicie - brakujący numer może jeszcze się pojawić.
+    //Luka starsza niż gapGrace to wycofana transakcja i jest pomijana
+    private void advanceWatermark() {
+        long now = System.nanoTime();
+        while (!appliedAboveWatermark.isEmpty()) {
+            long next = watermark + 1;
+            if (appliedAboveWatermark.first() == next) {
+                appliedAboveWatermark.pollFirst();
+            } else {
+                long firstSeen = gapsFirstSeenNanos.computeIfAbsent(next, id -> now);
+                if (now - firstSeen < gapGrace.toNanos()) {
+                    return;
+                }
+            }
+            gapsFirstSeenNanos.remove(next);
+            watermark = next;
+        }
+    }
+
+    private void reload(Set<String> emails) {
+        Map<String, List<String>> categoriesByEmail = subscriptionRepository.findActiveSubscribersByEmails(emails).stream()
+                .collect(Collectors.groupingBy(CategorySubscriber::getUserEmail,
+                        Collectors.mapping(CategorySubscriber::getCategoryName, Collectors.toList())));
+        lock.writeLock().lock();
+        try {
+            for (String email : emails) {
+                snapshot.replace(email, categoriesByEmail.getOrDefault(email, List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //gotowy i doczytany niedawno - przy kłopotach z bazą czytelnicy wracają do zapytania
+    public boolean isCurrent() {
+        return ready && System.nanoTime() - lastCaughtUpNanos <= refreshInterval.multipliedBy(3).toNanos();
+    }
+
+    public boolean contains(String categoryName, String email) {
+        lock.readLock().lock();
+        try {
+            Integer id = snapshot.emailIds.get(email);
+            BitSet members = snapshot.categories.get(categoryName);
+            return id != null && members != null && members.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //wywoływane raz na transakcję zapisu, tylko z kategoriami faktycznie zmienionymi: jeden wpis w logu zmian
+    //dla innych węzłów, lokalny indeks po commicie
+    public void subscribe(String email, Collection<String> categoryNames) {
+        record(new Change(email, List.copyOf(categoryNames), true));
+    }
+
+    public void unsubscribe(String email, Collection<String> categoryNames) {
+        record(new Change(email, List.copyOf(categoryNames), false));
+    }
+
+    //kategorie w kolejności alfabetycznej, w obrębie kategorii każdy email dokładnie raz
+    public void forEachSubscriber(Collection<String> categoryNames, Consumer<CategorySubscriber> consumer) {
+        for (String categoryName : new TreeSet<>(categoryNames)) {
+            BitSet members;
+            String[] emails;
+            lock.readLock().lock();
+            try {
+                BitSet current = snapshot.categories.get(categoryName);
+                if (current == null) {
+                    continue;
+                }
+                //kopia pozwala wysyłać bez trzymania blokady; tablica emaili tylko rośnie, więc jej stara referencja jest spójna
+                members = (BitSet) current.clone();
+                emails = snapshot.emails;
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int id = members.nextSetBit(0); id >= 0; id = members.nextSetBit(id + 1)) {
+                consumer.accept(new CategorySubscriber(categoryName, emails[id]));
+            }
+        }
+    }
+
+    public int subscriberCount(String categoryName) {
+        lock.readLock().lock();
+        try {
+            BitSet members = snapshot.categories.get(categoryName);
+            return members == null ? 0 : members.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void record(Change change) {
+        if (change.categoryNames().isEmpty()) {
+            return;
+        }
+        subscriptionChangeRepository.save(SubscriptionChange.builder()
+                .userEmail(change.email())
+                .createdAt(LocalDateTime.now())
+                .build());
+        afterCommit(change);
+    }
+
+    private void afterCommit(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    //lokalna zmiana od razu, bez czekania na odświeżenie; kolejne odświeżenie nadpisze ją aktualnym stanem z bazy
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        pendingReload.add(change.email());
+    }
+
+    private record Change(String email, List<String> categoryNames, boolean subscribed) {
+        void applyTo(Snapshot target) {
+            for (String categoryName : categoryNames) {
+                if (subscribed) {
+                    target.add(categoryName, email);
+                } else {
+                    target.remove(categoryName, email);
+                }
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final Map<String, Integer> emailIds = new HashMap<>();
+        private final Map<String, BitSet> categories = new HashMap<>();
+        private String[] emails = new String[1024];
+        private int emailCount;
+
+        void add(String categoryName, String email) {
+            categories.computeIfAbsent(categoryName, key -> new BitSet()).set(idOf(email));
+        }
+
+        void remove(String categoryName, String email) {
+            Integer id = emailIds.get(email);
+            BitSet members = categories.get(categoryName);
+            if (id != null && members != null) {
+                members.clear(id);
+            }
+        }
+
+        //wszystkie kategorie użytkownika zastępowane stanem z bazy
+        void replace(String email, Collection<String> categoryNames) {
+            Integer id = emailIds.get(email);
+            if (id != null) {
+                categories.values().forEach(members -> members.clear(id));
+            }
+            categoryNames.forEach(categoryName -> add(categoryName, email));
+        }
+
+        private int idOf(String email) {
+            Integer existing = emailIds.get(email);
+            if (existing != null) {
+                return existing;
+            }
+            if (emailCount == emails.length) {
+                emails = Arrays.copyOf(emails, emails.length * 2);
+            }
+            int id = emailCount++;
+            emails[id] = email;
+            emailIds.put(email, id);
+            return id;
+        }
+    }
+}
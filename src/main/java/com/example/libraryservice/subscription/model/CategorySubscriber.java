@@ -0,0 +1,11 @@
+package com.example.libraryservice.subscription.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CategorySubscriber {
+    private String categoryName;
+    private String userEmail;
+}
@@ -14,12 +14,14 @@ import java.time.LocalDate;
 @Setter
 @Builder
 @Entity
-@Table(name = "subscription")
+@Table(name = "subscription", uniqueConstraints =
+        @UniqueConstraint(name = "uk_subscription_user_category", columnNames = {"user_email", "category_name"}))
 @EntityListeners(AuditingEntityListener.class)
 public class Subscription {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
+    @Column(name = "category_name")
     private String categoryName;
     @CreatedDate
     private LocalDate creationDate;
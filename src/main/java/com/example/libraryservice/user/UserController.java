@@ -24,4 +24,10 @@ public class UserController {
     public ResponseEntity<AuthenticationResponse> authenticate(@RequestBody AuthenticationRequest request) {
         return ResponseEntity.ok(userService.authenticate(request));
     }
+
+    @PutMapping("/digest-slot")
+    public ResponseEntity<String> updateDigestSlot(@RequestParam(required = false) Integer slot) {
+        Integer saved = userService.updateDigestSlot(slot);
+        return ResponseEntity.ok(saved == null ? "Digest slot reset to default" : "Digest slot set to " + saved);
+    }
 }
@@ -1,10 +1,14 @@
 package com.example.libraryservice.user;
 
+import com.example.libraryservice.user.model.DigestSlotPreference;
 import com.example.libraryservice.user.model.User;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -14,5 +18,11 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<User> findWithLockingByEmail(String email);
+
+    //slot obowiązujący w danym oknie; zmiana od startu okna działa dopiero w następnym, null oznacza slot z hasza emaila
+    @Query("SELECT new com.example.libraryservice.user.model.DigestSlotPreference(u.email, " +
+            "CASE WHEN u.digestSlotChangedAt >= :windowStart THEN u.previousDigestSlot ELSE u.digestSlot END) " +
+            "FROM User u WHERE u.digestSlot IS NOT NULL OR u.digestSlotChangedAt >= :windowStart")
+    List<DigestSlotPreference> findDigestSlotPreferences(LocalDateTime windowStart);
 }
 
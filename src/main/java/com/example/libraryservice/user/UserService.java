@@ -1,6 +1,8 @@
 package com.example.libraryservice.user;
 
+import com.example.libraryservice.book.digest.DigestWindow;
 import com.example.libraryservice.common.enums.Role;
+import com.example.libraryservice.common.exception.model.UserException;
 import com.example.libraryservice.user.auth.AuthenticationRequest;
 import com.example.libraryservice.user.auth.AuthenticationResponse;
 import com.example.libraryservice.user.auth.RegisterRequest;
@@ -9,11 +11,15 @@ import com.example.libraryservice.user.model.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Objects;
+
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +29,7 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final DigestWindow digestWindow;
 
     @Transactional
     public AuthenticationResponse register(RegisterRequest request) {
@@ -48,4 +55,27 @@ public class UserService {
                 .token(jwtToken)
                 .build();
     }
+
+    //null przywraca slot przydzielany automatycznie; nowy slot obowiązuje od następnego okna
+    @Transactional
+    public Integer updateDigestSlot(Integer slot) {
+        if (slot != null && !digestWindow.isValidSlot(slot)) {
+            throw new UserException("DIGEST_SLOT_OUT_OF_RANGE");
+        }
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        User user = userRepository.findByEmail(email).orElseThrow(() -> new UsernameNotFoundException("USER_NOT_FOUND"));
+        if (Objects.equals(user.getDigestSlot(), slot)) {
+            return slot;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        //kolejna zmiana w tym samym oknie nie nadpisuje slotu, w którym użytkownik jest obsługiwany
+        LocalDateTime changedAt = user.getDigestSlotChangedAt();
+        if (changedAt == null || changedAt.isBefore(digestWindow.windowStart(now))) {
+            user.setPreviousDigestSlot(user.getDigestSlot());
+        }
+        user.setDigestSlot(slot);
+        user.setDigestSlotChangedAt(now);
+        userRepository.save(user);
+        return slot;
+    }
 }
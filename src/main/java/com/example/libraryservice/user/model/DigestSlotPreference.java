@@ -0,0 +1,11 @@
+package com.example.libraryservice.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DigestSlotPreference {
+    private String email;
+    private Integer digestSlot;
+}
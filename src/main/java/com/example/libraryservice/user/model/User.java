@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +34,10 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private Role role;
     private String password;
+    private Integer digestSlot;
+    //slot obowiązujący w oknie, w którym zmieniono digestSlot - nowy wybór działa od następnego okna
+    private Integer previousDigestSlot;
+    private LocalDateTime digestSlotChangedAt;
 
     @OneToMany(mappedBy = "user")
     private Set<Rental> rentals = new HashSet<>();
@@ -0,0 +1,11 @@
+-- rental_history is written and read only through JDBC (RentalJdbcRepository), so without Liquibase it is created here
+CREATE TABLE IF NOT EXISTS rental_history (
+    id INT PRIMARY KEY,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    returned BOOLEAN NOT NULL,
+    book_id INT,
+    user_email VARCHAR(45) NOT NULL,
+    archived_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_rental_history_user_email ON rental_history (user_email, id);
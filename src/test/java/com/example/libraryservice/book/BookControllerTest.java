@@ -1,10 +1,13 @@
 package com.example.libraryservice.book;
 
+import com.example.libraryservice.book.command.BlockBooksCommand;
 import com.example.libraryservice.book.command.CreateBookCommand;
 import com.example.libraryservice.book.model.Book;
 import com.example.libraryservice.common.enums.Role;
 import com.example.libraryservice.monitoring_logs.LogMessage;
 import com.example.libraryservice.rabbit.service.RabbitMqService;
+import com.example.libraryservice.rental.RentalRepository;
+import com.example.libraryservice.rental.model.Rental;
 import com.example.libraryservice.subscription.model.Subscription;
 import com.example.libraryservice.user.UserRepository;
 import com.example.libraryservice.user.model.User;
@@ -23,6 +26,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -57,6 +61,9 @@ class BookControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RentalRepository rentalRepository;
+
     private Subscription subscription;
 
     @Test
@@ -174,4 +181,51 @@ class BookControllerTest {
         assertThat(blockedBook.isBlocked()).isTrue();
         verify(rabbitMqService, times(1)).send(any(LogMessage.class), anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(authorities = "EMPLOYEE")
+    public void testBlockBooks() throws Exception {
+        Book book1 = bookRepository.save(Book.builder().title("Title").author("Author").category("ADVENTURE").blocked(false).build());
+        Book book2 = bookRepository.save(Book.builder().title("Title 2").author("Author").category("ADVENTURE").blocked(true).build());
+
+        BlockBooksCommand command = new BlockBooksCommand();
+        command.setIds(List.of(book1.getId(), book2.getId(), 999999));
+
+        mockMvc.perform(patch("/api/v1/books/block")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", hasSize(1)))
+                .andExpect(jsonPath("$.updated[0]", is(book1.getId())))
+                .andExpect(jsonPath("$.unchanged[0]", is(book2.getId())))
+                .andExpect(jsonPath("$.missing[0]", is(999999)));
+
+        assertThat(bookRepository.findById(book1.getId()).orElseThrow().isBlocked()).isTrue();
+    }
+
+    @Test
+    @WithMockUser(authorities = "CUSTOMER")
+    public void testFindAvailableBooks() throws Exception {
+        LocalDate from = LocalDate.now().plusDays(3);
+        LocalDate to = LocalDate.now().plusDays(10);
+        Book free = bookRepository.save(Book.builder().title("Free").author("Author").category("POETRY").blocked(false).build());
+        Book rented = bookRepository.save(Book.builder().title("Rented").author("Author").category("POETRY").blocked(false).build());
+        bookRepository.save(Book.builder().title("Blocked").author("Author").category("POETRY").blocked(true).build());
+        bookRepository.save(Book.builder().title("Other").author("Author").category("ADVENTURE").blocked(false).build());
+
+        Rental rental = new Rental();
+        rental.setUser(userRepository.findByEmail("user@example.com").orElseThrow());
+        rental.setBook(rented);
+        rental.setFromDate(from.minusDays(2));
+        rental.setToDate(to.plusDays(2));
+        rentalRepository.save(rental);
+
+        mockMvc.perform(get("/api/v1/books/available")
+                        .param("category", "POETRY")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id", is(free.getId())));
+    }
+}
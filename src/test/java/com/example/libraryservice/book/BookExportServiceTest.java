@@ -0,0 +1,48 @@
+package com.example.libraryservice.book;
+
+import com.example.libraryservice.book.model.BookDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+class BookExportServiceTest {
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+
+    private BookExportService bookExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookExportService = new BookExportService(bookJdbcRepository, new ObjectMapper());
+    }
+
+    @Test
+    void testExportNdjson_WritesOneLinePerBook() throws IOException {
+        doAnswer(invocation -> {
+            Consumer<BookDto> consumer = invocation.getArgument(0);
+            consumer.accept(BookDto.builder().id(1).title("Dune").author("Frank Herbert").category("SCIENCE_FICTION").build());
+            consumer.accept(BookDto.builder().id(2).title("Emma").author("Jane Austen").category("CLASSIC").blocked(true).build());
+            return null;
+        }).when(bookJdbcRepository).streamAll(any());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bookExportService.exportNdjson(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Dune", new ObjectMapper().readTree(lines[0]).get("title").asText());
+        assertEquals(true, new ObjectMapper().readTree(lines[1]).get("blocked").asBoolean());
+    }
+}
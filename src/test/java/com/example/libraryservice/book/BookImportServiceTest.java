@@ -0,0 +1,126 @@
+package com.example.libraryservice.book;
+
+import com.example.libraryservice.book.cache.BookCache;
+import com.example.libraryservice.book.command.CreateBookCommand;
+import com.example.libraryservice.book.model.BookImportReport;
+import com.example.libraryservice.book.search.BookSearchIndex;
+import com.example.libraryservice.common.exception.model.BookException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BookImportServiceTest {
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookCache bookCache;
+
+    @Captor
+    private ArgumentCaptor<List<CreateBookCommand>> batchCaptor;
+
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookImportService = new BookImportService(bookJdbcRepository, bookSearchIndex, bookCache,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper());
+        ReflectionTestUtils.setField(bookImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(bookImportService, "maxReportedErrors", 10);
+        when(bookJdbcRepository.findMaxId()).thenReturn(7);
+    }
+
+    @Test
+    void testImportCsv_WritesInBatchesAndReportsInvalidRows() {
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(((List<?>) invocation.getArgument(0)).size());
+            return null;
+        }).when(bookJdbcRepository).insertBatch(anyList());
+
+        String csv = """
+                title,author,category,blocked
+                Dune,Frank Herbert,SCIENCE_FICTION,false
+                "Hobbit, The",John Tolkien,FANTASY,false
+                Emma,,CLASSIC,false
+                Ulysses,James Joyce,CLASSIC,true
+                """;
+
+        BookImportReport report = bookImportService.importBooks(stream(csv), "text/csv");
+
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(4, report.getErrors().get(0).getLine());
+        assertEquals(List.of(2, 1), batchSizes);
+        verify(bookSearchIndex, times(1)).indexFrom(7);
+        verify(bookCache, times(1)).evictListingsAfterInsert();
+    }
+
+    @Test
+    void testImportNdjson_MalformedLine() {
+        String ndjson = """
+                {"title":"Dune","author":"Frank Herbert","category":"SCIENCE_FICTION"}
+                {"title":
+                """;
+
+        BookImportReport report = bookImportService.importBooks(stream(ndjson), "application/x-ndjson");
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals("MALFORMED_ROW", report.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void testImport_FailedBatchIsRetriedRowByRow() {
+        doAnswer(invocation -> {
+            List<CreateBookCommand> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> book.getTitle().startsWith("Too"))) {
+                throw new DataIntegrityViolationException("Data too long");
+            }
+            return null;
+        }).when(bookJdbcRepository).insertBatch(batchCaptor.capture());
+
+        String ndjson = """
+                {"title":"Dune","author":"Frank Herbert","category":"SCIENCE_FICTION"}
+                {"title":"Too long title","author":"Frank Herbert","category":"SCIENCE_FICTION"}
+                """;
+
+        BookImportReport report = bookImportService.importBooks(stream(ndjson), "application/x-ndjson");
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals(3, batchCaptor.getAllValues().size());
+    }
+
+    @Test
+    void testImport_UnsupportedFormat() {
+        assertThrows(BookException.class,
+                () -> bookImportService.importBooks(stream("{}"), "application/json"));
+        verify(bookJdbcRepository, never()).insertBatch(anyList());
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.libraryservice.book;
 
+import com.example.libraryservice.book.cache.BookCache;
+import com.example.libraryservice.book.digest.DigestDispatcher;
+import com.example.libraryservice.book.digest.DigestPart;
+import com.example.libraryservice.book.digest.DigestPendingBookRepository;
+import com.example.libraryservice.book.digest.DigestProgress;
+import com.example.libraryservice.book.digest.DigestShardCoordinator;
+import com.example.libraryservice.book.digest.DigestWindow;
 import com.example.libraryservice.book.command.CreateBookCommand;
 import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.DigestPendingBook;
+import com.example.libraryservice.book.model.BookBlockResult;
+import com.example.libraryservice.book.model.BookBlockState;
 import com.example.libraryservice.book.model.BookDto;
+import com.example.libraryservice.book.model.BookSlice;
+import com.example.libraryservice.book.search.BookSearchIndex;
+import com.example.libraryservice.common.exception.model.BookException;
 import com.example.libraryservice.common.exception.model.BookNotFoundException;
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
 import com.example.libraryservice.rabbit.model.BookInfo;
-import com.example.libraryservice.rabbit.model.MailInfoRabbit;
 import com.example.libraryservice.rabbit.service.RabbitMqService;
 import com.example.libraryservice.subscription.SubscriptionRepository;
 import com.example.libraryservice.subscription.model.Subscription;
@@ -13,16 +26,18 @@ import com.example.libraryservice.user.UserRepository;
 import com.example.libraryservice.user.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.*;
 
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -43,6 +58,27 @@ class BookServiceTest {
     @Mock
     private RabbitMqService rabbitMqService;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private DigestDispatcher digestDispatcher;
+
+    @Mock
+    private DigestPendingBookRepository digestPendingBookRepository;
+
+    @Mock
+    private DigestShardCoordinator digestShardCoordinator;
+
+    @Mock
+    private DigestWindow digestWindow;
+
+    @Mock
+    private DigestProgress digestProgress;
+
+    @Spy
+    private BookCache bookCache = new BookCache(100, 10, 60);
+
     @BeforeEach
     void setUp() {
         Subscription subscription = new Subscription();
@@ -57,23 +93,6 @@ class BookServiceTest {
         when(subscriptionRepository.findSubscriptionsByCategoryNameAndActiveFetchUser(eq("ADVENTURE"), eq(true), any(Pageable.class))).thenReturn(sampleSlice);
     }
 
-    @Test
-    void testFindAll() {
-        List<Book> books = new ArrayList<>();
-        books.add(new Book(1, "Book 1", "Author 1", "ADVENTURE", false, null, LocalDateTime.now()));
-        books.add(new Book(2, "Book 2", "Author 2", "SCIENCE_FICTION", false, null, LocalDateTime.now()));
-
-        Pageable pageable = Pageable.ofSize(10);
-        Page<Book> bookPage = new PageImpl<>(books, pageable, books.size());
-
-        when(bookRepository.findAll(pageable)).thenReturn(bookPage);
-
-        Page<Book> result = bookService.findAll(pageable);
-
-        assertEquals(bookPage, result);
-        verify(bookRepository, times(1)).findAll(pageable);
-    }
-
     @Test
     void testSave() {
         CreateBookCommand command = new CreateBookCommand();
@@ -120,6 +139,7 @@ class BookServiceTest {
 
         assertTrue(book.isBlocked());
         verify(bookRepository, times(1)).blockBookById(bookId);
+        verify(bookSearchIndex, times(1)).markBlocked(List.of(bookId), true);
     }
 
     @Test
@@ -196,91 +216,259 @@ class BookServiceTest {
     }
 
     @Test
-    void testFindBooksAddedLast24Hours() {
-        LocalDateTime currentTime = LocalDateTime.now();
-        Book book1 = new Book();
-        book1.setRegisterTime(currentTime.minusHours(23));
-        Book book2 = new Book();
-        book2.setRegisterTime(currentTime.minusHours(23));
-        Book book3 = new Book();
-        book3.setRegisterTime(currentTime.minusDays(2));
+    void testFindSlice_ReturnsCursorWhenMoreBooksExist() {
+        List<BookDto> books = List.of(
+                BookDto.builder().id(11).title("Book 11").build(),
+                BookDto.builder().id(12).title("Book 12").build(),
+                BookDto.builder().id(13).title("Book 13").build());
 
-        List<Book> books = new ArrayList<>();
-        books.add(book1);
-        books.add(book2);
-        books.add(book3);
+        when(bookRepository.findNextDtos(eq(10), any(Pageable.class))).thenReturn(books);
 
-        when(bookRepository.findBooksAddedWithinLast24Hours(any(), any())).thenReturn(new SliceImpl<>(books));
+        BookSlice result = bookService.findSlice(bookService.encodeCursor(10), 2);
 
-        List<Book> result = bookService.findBooksAddedLast24Hours();
+        assertTrue(result.isHasNext());
+        assertEquals(2, result.getContent().size());
+        assertEquals(12, bookService.decodeCursor(result.getNextCursor()));
+        verify(bookRepository, never()).findAll(any(Pageable.class));
+    }
 
-        assertNotNull(result);
-        assertEquals(3, result.size());
+    @Test
+    void testFindSlice_LastSliceHasNoCursor() {
+        when(bookRepository.findNextDtos(eq(0), any(Pageable.class)))
+                .thenReturn(List.of(BookDto.builder().id(1).title("Book 1").build()));
 
-        verify(bookRepository, times(1)).findBooksAddedWithinLast24Hours(any(), any());
+        BookSlice result = bookService.findSlice(null, 10);
+
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+        assertEquals(1, result.getContent().size());
     }
 
     @Test
-    void testSendMailInfoForCategories() throws InterruptedException {
-        Map<String, List<String>> categorySubscribersMap = Collections.singletonMap("Fiction", Collections.singletonList("user@example.com"));
-        List<Book> newBooks = new ArrayList<>();
-        Book newBook = new Book();
-        newBook.setTitle("New Book");
-        newBook.setCategory("Fiction");
-        newBook.setAuthor("Jane Doe");
-        newBook.setBlocked(false);
-        newBook.setRegisterTime(LocalDateTime.now().minusHours(12));
-        newBooks.add(newBook);
+    void testFindSlice_InvalidCursor() {
+        assertThrows(BookException.class, () -> bookService.findSlice("not-a-cursor", 10));
+    }
+
+    @Test
+    void testFindById_SecondLookupServedFromCache() {
+        BookDto book = BookDto.builder().id(5).title("Dune").author("Frank Herbert").category("SCIENCE_FICTION").build();
+        when(bookRepository.findDtoById(5)).thenReturn(Optional.of(book));
+
+        bookService.findById(5);
+        BookDto result = bookService.findById(5);
+
+        assertEquals("Dune", result.getTitle());
+        verify(bookRepository, times(1)).findDtoById(5);
+        verify(bookRepository, never()).findById(anyInt());
+    }
 
-        CountDownLatch latch = new CountDownLatch(categorySubscribersMap.size());
+    @Test
+    void testFindById_NotFound() {
+        when(bookRepository.findDtoById(5)).thenReturn(Optional.empty());
 
-        doAnswer(invocation -> {
-            latch.countDown();
-            return null;
-        }).when(rabbitMqService).send(any(), any());
+        assertThrows(BookNotFoundException.class, () -> bookService.findById(5));
+    }
 
-        bookService.sendMailInfoForCategories(categorySubscribersMap, newBooks);
+    @Test
+    void testBlockBookById_EvictsCachedBook() {
+        BookDto book = BookDto.builder().id(5).title("Dune").blocked(false).build();
+        when(bookRepository.findDtoById(5)).thenReturn(Optional.of(book));
+        when(bookRepository.blockBookById(5)).thenReturn(1);
 
-        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        bookService.findById(5);
+        bookService.blockBookById(5);
+        bookService.findById(5);
 
-        verify(rabbitMqService, times(1)).send(any(MailInfoRabbit.class), any());
+        verify(bookRepository, times(2)).findDtoById(5);
     }
 
     @Test
-    void testCreateMailInfo() {
-        List<String> subscriberEmails = Collections.singletonList("user@example.com");
-        String bookCategory = "Fiction";
-
-        List<Book> newBooks = new ArrayList<>();
-        Book newBook = new Book();
-        newBook.setTitle("New Book");
-        newBook.setCategory("Fiction");
-        newBook.setAuthor("Jane Doe");
-        newBook.setBlocked(false);
-        newBook.setRegisterTime(LocalDateTime.now().minusHours(12));
-        newBooks.add(newBook);
-
-        MailInfoRabbit mailInfo = bookService.createMailInfo(subscriberEmails, bookCategory, newBooks);
-
-        assertNotNull(mailInfo);
-        assertEquals(subscriberEmails, mailInfo.getSubscriberEmails());
-        assertEquals(1, mailInfo.getBookInfoList().size());
-        BookInfo bookInfo = mailInfo.getBookInfoList().get(0);
-        assertEquals(newBook.getTitle(), bookInfo.getTitle());
-        assertEquals(newBook.getCategory(), bookInfo.getCategory());
-        assertEquals(newBook.getAuthor(), bookInfo.getAuthor());
+    void testFindPage_CachedUntilNewBookIsSaved() {
+        Pageable pageable = PageRequest.of(0, 10);
+        when(bookRepository.findAllDtos(pageable)).thenReturn(new PageImpl<>(List.of(BookDto.builder().id(1).build())));
+        when(bookRepository.save(any(Book.class))).thenReturn(Book.builder().id(2).build());
+
+        bookService.findPage(pageable);
+        bookService.findPage(pageable);
+        bookService.createBookSave(new CreateBookCommand());
+        bookService.findPage(pageable);
+
+        verify(bookRepository, times(2)).findAllDtos(pageable);
+        verify(bookRepository, never()).findAll(pageable);
     }
 
     @Test
-    void testBuildCategorySubscribersMap_WithNoBooks() {
-        List<Book> emptyBookList = Collections.emptyList();
+    void testChangeBlockedStatus_ReportsUpdatedUnchangedAndMissing() {
+        when(bookRepository.findBlockStatesForUpdate(List.of(1, 2, 3)))
+                .thenReturn(List.of(new BookBlockState(1, false), new BookBlockState(2, true)));
+        when(bookRepository.updateBlocked(List.of(1), true)).thenReturn(1);
+
+        BookBlockResult result = bookService.changeBlockedStatus(List.of(3, 1, 2, 1), true);
+
+        assertEquals(List.of(1), result.getUpdated());
+        assertEquals(List.of(2), result.getUnchanged());
+        assertEquals(List.of(3), result.getMissing());
+        verify(bookRepository, times(1)).updateBlocked(List.of(1), true);
+        verify(bookSearchIndex, times(1)).markBlocked(List.of(1), true);
+    }
 
-        Map<String, List<String>> categorySubscribersMap = bookService.buildCategorySubscribersMap(emptyBookList);
+    @Test
+    void testChangeBlockedStatus_UpdateCountDiffersFromLockedState_ThrowsBookException() {
+        when(bookRepository.findBlockStatesForUpdate(List.of(1, 2)))
+                .thenReturn(List.of(new BookBlockState(1, false), new BookBlockState(2, false)));
+        when(bookRepository.updateBlocked(List.of(1, 2), true)).thenReturn(1);
 
-        assertNotNull(categorySubscribersMap);
-        assertTrue(categorySubscribersMap.isEmpty());
+        assertThrows(BookException.class, () -> bookService.changeBlockedStatus(List.of(1, 2), true));
+        verify(bookSearchIndex, never()).markBlocked(any(), anyBoolean());
     }
 
-}
+    @Test
+    void testFindAvailable_ToDateBeforeFromDate_ThrowsBookException() {
+        LocalDate from = LocalDate.now().plusDays(5);
 
+        assertThrows(BookException.class,
+                () -> bookService.findAvailable("ADVENTURE", from, from.minusDays(1), Pageable.ofSize(10)));
+        verify(bookRepository, never()).findAvailableDtos(anyString(), any(), any(), any());
+    }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSendDigestShard_SendsShardBooksToSlotRecipientsAndMarksSlot() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        List<DigestPendingBook> due = List.of(
+                pendingBook(1L, "A", "FANTASY", null),
+                pendingBook(2L, "B", "HORROR", null),
+                pendingBook(3L, "C", "FANTASY", null));
+        List<String> shardCategories = List.of("FANTASY", "HORROR");
+        Predicate<String> recipients = email -> true;
+        when(digestPendingBookRepository.findDueCategories(windowStart, 2)).thenReturn(List.of("FANTASY", "HORROR", "DRAMA"));
+        when(digestShardCoordinator.shardOf("FANTASY")).thenReturn(1);
+        when(digestShardCoordinator.shardOf("HORROR")).thenReturn(1);
+        when(digestShardCoordinator.shardOf("DRAMA")).thenReturn(0);
+        when(digestPendingBookRepository.findDue(shardCategories, windowStart, 2)).thenReturn(due);
+        when(digestWindow.recipientsInSlots(windowStart, -1, 2)).thenReturn(recipients);
+        when(digestWindow.lastSlot()).thenReturn(7);
+
+        bookService.sendDigestShard(1, windowStart, 2);
+
+        ArgumentCaptor<List<DigestPart>> captor = ArgumentCaptor.forClass(List.class);
+        verify(digestDispatcher).dispatch(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        DigestPart part = captor.getValue().get(0);
+        assertSame(recipients, part.recipientFilter());
+        assertEquals(2, part.newBooksByCategory().get("FANTASY").size());
+        assertEquals(1, part.newBooksByCategory().get("HORROR").size());
+        verify(digestPendingBookRepository).markSent(List.of(1L, 2L, 3L), 2);
+        verify(digestPendingBookRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSendDigestShard_LastSlot_DispatchesEverySlotTogetherAndDeletesBooks() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        List<DigestPendingBook> due = List.of(
+                pendingBook(1L, "A", "FANTASY", 6),
+                pendingBook(2L, "B", "FANTASY", 4));
+        when(digestPendingBookRepository.findDueCategories(windowStart, 7)).thenReturn(List.of("FANTASY"));
+        when(digestShardCoordinator.shardOf("FANTASY")).thenReturn(0);
+        when(digestPendingBookRepository.findDue(List.of("FANTASY"), windowStart, 7)).thenReturn(due);
+        when(digestWindow.lastSlot()).thenReturn(7);
+
+        bookService.sendDigestShard(0, windowStart, 7);
+
+        verify(digestWindow).recipientsInSlots(windowStart, 4, 7);
+        verify(digestWindow).recipientsInSlots(windowStart, 6, 7);
+        //jedno wywołanie, żeby PER_RECIPIENT mógł połączyć książki z różnych slotów w jeden mail
+        ArgumentCaptor<List<DigestPart>> captor = ArgumentCaptor.forClass(List.class);
+        verify(digestDispatcher).dispatch(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        verify(digestPendingBookRepository).deleteByIds(List.of(2L, 1L));
+        verify(digestPendingBookRepository, never()).markSent(any(), anyInt());
+    }
+
+    @Test
+    void testSendDigestShard_FailedBatch_LeavesBooksPending() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        when(digestPendingBookRepository.findDueCategories(windowStart, 2)).thenReturn(List.of("FANTASY"));
+        when(digestShardCoordinator.shardOf("FANTASY")).thenReturn(0);
+        when(digestPendingBookRepository.findDue(List.of("FANTASY"), windowStart, 2))
+                .thenReturn(List.of(pendingBook(1L, "A", "FANTASY", null)));
+        when(digestWindow.lastSlot()).thenReturn(7);
+        when(digestDispatcher.dispatch(anyList())).thenThrow(new RabbitMessageSendingException("DIGEST_NOT_SENT"));
+
+        assertThrows(RabbitMessageSendingException.class, () -> bookService.sendDigestShard(0, windowStart, 2));
+
+        verify(digestPendingBookRepository, never()).markSent(any(), anyInt());
+        verify(digestPendingBookRepository, never()).deleteByIds(any());
+    }
+
+    @Test
+    void testSendDigestShard_NothingPendingInShard_SkipsDispatch() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        when(digestPendingBookRepository.findDueCategories(windowStart, 0)).thenReturn(List.of("DRAMA"));
+        when(digestShardCoordinator.shardOf("DRAMA")).thenReturn(0);
+
+        bookService.sendDigestShard(1, windowStart, 0);
+
+        verifyNoInteractions(digestDispatcher);
+        verify(digestPendingBookRepository, never()).findDue(any(), any(), anyInt());
+    }
+
+    @Test
+    void testSendInfo_RunsCurrentSlotThroughCoordinatorOnce() {
+        when(digestWindow.isEnabled()).thenReturn(true);
+        when(digestWindow.windowStart(any())).thenReturn(LocalDateTime.of(2024, 3, 10, 19, 0));
+        when(digestWindow.slotAt(any())).thenReturn(3);
+        when(digestProgress.beginSlot(any(), eq(3))).thenReturn(true, false);
+        when(digestShardCoordinator.runShards(any())).thenReturn(new DigestShardCoordinator.ShardRun(3, List.of(), List.of()));
+
+        bookService.sendInfo();
+        bookService.sendInfo();
+
+        verify(digestShardCoordinator, times(1)).runShards(any());
+        verify(digestProgress).completeSlot(any(), eq(3), any());
+    }
+
+    @Test
+    void testSendInfo_BusyShards_LeavesSlotOpenForNextTick() {
+        when(digestWindow.isEnabled()).thenReturn(true);
+        when(digestWindow.windowStart(any())).thenReturn(LocalDateTime.of(2024, 3, 10, 19, 0));
+        when(digestWindow.slotAt(any())).thenReturn(3);
+        when(digestProgress.beginSlot(any(), eq(3))).thenReturn(true);
+        when(digestShardCoordinator.runShards(any())).thenReturn(new DigestShardCoordinator.ShardRun(2, List.of(5), List.of()));
+
+        bookService.sendInfo();
+
+        verify(digestProgress, never()).completeSlot(any(), anyInt(), any());
+    }
+
+    @Test
+    void testSendInfo_Disabled_DoesNothing() {
+        when(digestWindow.isEnabled()).thenReturn(false);
+
+        bookService.sendInfo();
+
+        verifyNoInteractions(digestShardCoordinator, digestProgress);
+    }
+
+    private DigestPendingBook pendingBook(Long id, String title, String category, Integer sentSlot) {
+        return DigestPendingBook.builder().id(id).title(title).category(category).author("X")
+                .createdAt(LocalDateTime.of(2024, 3, 10, 12, 0)).sentSlot(sentSlot).build();
+    }
+
+    @Test
+    void testCreateBookSave_AddsBookToDigestAccumulator() {
+        CreateBookCommand command = new CreateBookCommand();
+        command.setTitle("Dune");
+        command.setAuthor("Frank Herbert");
+        command.setCategory("SCIENCE_FICTION");
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookService.createBookSave(command);
+
+        ArgumentCaptor<DigestPendingBook> captor = ArgumentCaptor.forClass(DigestPendingBook.class);
+        verify(digestPendingBookRepository).save(captor.capture());
+        assertEquals("SCIENCE_FICTION", captor.getValue().getCategory());
+        assertEquals("Dune", captor.getValue().getTitle());
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.enums.DigestConsolidationMode;
+import com.example.libraryservice.common.enums.ExecutorMode;
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
+import com.example.libraryservice.common.executor.ManagedExecutor;
+import com.example.libraryservice.rabbit.model.BookInfo;
+import com.example.libraryservice.rabbit.model.MailInfoRabbit;
+import com.example.libraryservice.rabbit.service.RabbitMqService;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DigestDispatcherTest {
+
+    @Mock
+    private DigestSubscriberReader digestSubscriberReader;
+
+    @Mock
+    private RabbitMqService rabbitMqService;
+
+    @Mock
+    private DigestProgress digestProgress;
+
+    private ManagedExecutor digestSendExecutor;
+
+    private DigestDispatcher digestDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        digestSendExecutor = new ManagedExecutor("digest-send", ExecutorMode.PLATFORM, 2, 2, 60, 2, Duration.ofSeconds(5));
+        digestDispatcher = new DigestDispatcher(digestSubscriberReader, rabbitMqService, "library-queue", 2, 1_000_000, 2, digestSendExecutor,
+                DigestConsolidationMode.PER_CATEGORY, digestProgress);
+    }
+
+    @AfterEach
+    void tearDown() {
+        digestSendExecutor.shutdown();
+    }
+
+    @Test
+    void dispatch_BatchesRecipientsPerCategoryAndWaitsForSends() {
+        Map<String, List<BookInfo>> books = Map.of(
+                "FANTASY", List.of(new BookInfo("Elantris", "FANTASY", "Brandon Sanderson")),
+                "HORROR", List.of(new BookInfo("It", "HORROR", "Stephen King")));
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "b@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "c@example.com"));
+            consumer.accept(new CategorySubscriber("HORROR", "a@example.com"));
+            return null;
+        }).when(digestSubscriberReader).forEachSubscriber(any(), any());
+
+        int messages = digestDispatcher.dispatch(books);
+
+        assertEquals(3, messages);
+        ArgumentCaptor<MailInfoRabbit> captor = ArgumentCaptor.forClass(MailInfoRabbit.class);
+        verify(rabbitMqService, times(3)).send(captor.capture(), eq("library-queue"));
+        assertEquals(4, captor.getAllValues().stream().mapToInt(mail -> mail.getSubscriberEmails().size()).sum());
+        verify(digestProgress, times(3)).recordMessage(anyInt());
+    }
+
+    @Test
+    void dispatch_RecipientFilter_SkipsRecipientsOutsideSlot() {
+        Map<String, List<BookInfo>> books = Map.of(
+                "FANTASY", List.of(new BookInfo("Elantris", "FANTASY", "Brandon Sanderson")));
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "b@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "c@example.com"));
+            return null;
+        }).when(digestSubscriberReader).forEachSubscriber(any(), any());
+
+        int messages = digestDispatcher.dispatch(books, email -> !email.startsWith("b"));
+
+        assertEquals(1, messages);
+        ArgumentCaptor<MailInfoRabbit> captor = ArgumentCaptor.forClass(MailInfoRabbit.class);
+        verify(rabbitMqService).send(captor.capture(), eq("library-queue"));
+        assertEquals(List.of("a@example.com", "c@example.com"), captor.getValue().getSubscriberEmails());
+    }
+
+    @Test
+    void dispatch_PerRecipient_GroupsRecipientsWithIdenticalCategorySets() {
+        DigestDispatcher perRecipient = new DigestDispatcher(digestSubscriberReader, rabbitMqService, "library-queue", 2, 1_000_000, 2,
+                digestSendExecutor, DigestConsolidationMode.PER_RECIPIENT, digestProgress);
+        Map<String, List<BookInfo>> books = Map.of(
+                "FANTASY", List.of(new BookInfo("Elantris", "FANTASY", "Brandon Sanderson")),
+                "HORROR", List.of(new BookInfo("It", "HORROR", "Stephen King")));
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "b@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "c@example.com"));
+            consumer.accept(new CategorySubscriber("HORROR", "a@example.com"));
+            consumer.accept(new CategorySubscriber("HORROR", "b@example.com"));
+            return null;
+        }).when(digestSubscriberReader).forEachSubscriber(any(), any());
+
+        int messages = perRecipient.dispatch(books);
+
+        assertEquals(2, messages);
+        ArgumentCaptor<MailInfoRabbit> captor = ArgumentCaptor.forClass(MailInfoRabbit.class);
+        verify(rabbitMqService, times(2)).send(captor.capture(), eq("library-queue"));
+        MailInfoRabbit both = captor.getAllValues().stream()
+                .filter(mail -> mail.getSubscriberEmails().contains("a@example.com")).findFirst().orElseThrow();
+        assertEquals(List.of("a@example.com", "b@example.com"), both.getSubscriberEmails());
+        assertEquals(2, both.getBookInfoList().size());
+        MailInfoRabbit fantasyOnly = captor.getAllValues().stream()
+                .filter(mail -> mail.getSubscriberEmails().contains("c@example.com")).findFirst().orElseThrow();
+        assertEquals(1, fantasyOnly.getBookInfoList().size());
+    }
+
+    @Test
+    void dispatch_PerRecipient_MergesPartsWithDifferentRecipientRangesIntoOneMail() {
+        DigestDispatcher perRecipient = new DigestDispatcher(digestSubscriberReader, rabbitMqService, "library-queue", 10, 1_000_000, 2,
+                digestSendExecutor, DigestConsolidationMode.PER_RECIPIENT, digestProgress);
+        //ta sama kategoria w dwóch częściach: książka wysłana już części odbiorców i książka jeszcze niewysłana
+        DigestPart caughtUp = new DigestPart(Map.of("FANTASY", List.of(new BookInfo("Elantris", "FANTASY", "Brandon Sanderson"))),
+                email -> email.startsWith("b"));
+        DigestPart fresh = new DigestPart(Map.of("FANTASY", List.of(new BookInfo("Mistborn", "FANTASY", "Brandon Sanderson")),
+                "HORROR", List.of(new BookInfo("It", "HORROR", "Stephen King"))), email -> true);
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            consumer.accept(new CategorySubscriber("FANTASY", "b@example.com"));
+            consumer.accept(new CategorySubscriber("HORROR", "b@example.com"));
+            return null;
+        }).when(digestSubscriberReader).forEachSubscriber(any(), any());
+
+        int messages = perRecipient.dispatch(List.of(caughtUp, fresh));
+
+        assertEquals(2, messages);
+        verify(digestSubscriberReader).forEachSubscriber(any(), any());
+        ArgumentCaptor<MailInfoRabbit> captor = ArgumentCaptor.forClass(MailInfoRabbit.class);
+        verify(rabbitMqService, times(2)).send(captor.capture(), eq("library-queue"));
+        MailInfoRabbit forB = captor.getAllValues().stream()
+                .filter(mail -> mail.getSubscriberEmails().contains("b@example.com")).findFirst().orElseThrow();
+        assertEquals(List.of("b@example.com"), forB.getSubscriberEmails());
+        assertEquals(3, forB.getBookInfoList().size());
+        MailInfoRabbit forA = captor.getAllValues().stream()
+                .filter(mail -> mail.getSubscriberEmails().contains("a@example.com")).findFirst().orElseThrow();
+        assertEquals(List.of("Mistborn"), forA.getBookInfoList().stream().map(BookInfo::getTitle).toList());
+    }
+
+    @Test
+    void dispatch_FailedBatch_ReportedAfterOtherBatchesFinish() {
+        Map<String, List<BookInfo>> books = Map.of(
+                "FANTASY", List.of(new BookInfo("Elantris", "FANTASY", "Brandon Sanderson")),
+                "HORROR", List.of(new BookInfo("It", "HORROR", "Stephen King")));
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            consumer.accept(new CategorySubscriber("HORROR", "a@example.com"));
+            return null;
+        }).when(digestSubscriberReader).forEachSubscriber(any(), any());
+        doThrow(new RabbitMessageSendingException("MESSAGE_NOT_SENT"))
+                .when(rabbitMqService).send(argThat(mail -> mail instanceof MailInfoRabbit info
+                        && info.getBookInfoList().get(0).getCategory().equals("HORROR")), anyString());
+
+        assertThrows(RabbitMessageSendingException.class, () -> digestDispatcher.dispatch(books));
+
+        verify(rabbitMqService, times(2)).send(any(), eq("library-queue"));
+        verify(digestProgress, times(1)).recordMessage(anyInt());
+    }
+}
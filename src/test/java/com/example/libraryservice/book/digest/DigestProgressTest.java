@@ -0,0 +1,60 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.executor.TokenBucket;
+import com.example.libraryservice.monitoring_logs.DigestProgressDto;
+import com.example.libraryservice.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DigestProgressTest {
+
+    private static final LocalDateTime WINDOW = LocalDateTime.of(2024, 3, 10, 19, 0);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private DigestProgress digestProgress;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        DigestWindow digestWindow = new DigestWindow(userRepository, true, "19:00", 240, 8);
+        digestProgress = new DigestProgress(digestWindow, new TokenBucket(20, 40));
+    }
+
+    @Test
+    void testBeginSlot_CompletedSlotIsNotRunAgain() {
+        assertTrue(digestProgress.beginSlot(WINDOW, 0));
+        digestProgress.completeSlot(WINDOW, 0, Duration.ofMinutes(2));
+
+        assertFalse(digestProgress.beginSlot(WINDOW, 0));
+        assertTrue(digestProgress.beginSlot(WINDOW, 1));
+        assertTrue(digestProgress.beginSlot(WINDOW.plusDays(1), 0));
+    }
+
+    @Test
+    void testStats_EtaIsLastSlotStartPlusAveragePass() {
+        digestProgress.beginSlot(WINDOW, 0);
+        digestProgress.recordMessage(10);
+        digestProgress.recordMessage(5);
+        digestProgress.completeSlot(WINDOW, 0, Duration.ofMinutes(4));
+        digestProgress.beginSlot(WINDOW, 1);
+        digestProgress.completeSlot(WINDOW, 1, Duration.ofMinutes(2));
+
+        DigestProgressDto stats = digestProgress.stats();
+
+        assertEquals(WINDOW, stats.getWindowStart());
+        assertEquals(WINDOW.plusHours(4), stats.getWindowEnd());
+        assertEquals(2, stats.getServedSlots());
+        assertEquals(2, stats.getMessagesSent());
+        assertEquals(15, stats.getRecipientsDelivered());
+        assertEquals(WINDOW.plusMinutes(210).plusMinutes(3), stats.getEstimatedCompletion());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.common.enums.DigestConsolidationMode;
+import com.example.libraryservice.common.job.SchedulerLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DigestShardCoordinatorTest {
+
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private DigestShardCoordinator digestShardCoordinator;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        digestShardCoordinator = new DigestShardCoordinator(schedulerLockService, 4, 900, DigestConsolidationMode.PER_CATEGORY);
+    }
+
+    private void runTaskWhenLocked() {
+        when(schedulerLockService.runExclusively(anyString(), any(), any())).thenAnswer(invocation -> {
+            invocation.getArgument(2, Runnable.class).run();
+            return true;
+        });
+    }
+
+    @Test
+    void testShardOf_IsStableAndInRange() {
+        int shard = digestShardCoordinator.shardOf("FANTASY");
+
+        assertEquals(shard, digestShardCoordinator.shardOf("FANTASY"));
+        assertTrue(shard >= 0 && shard < 4);
+    }
+
+    @Test
+    void testRunShards_AllFree_ProcessesEveryShardOnce() {
+        runTaskWhenLocked();
+        List<Integer> processed = new ArrayList<>();
+
+        DigestShardCoordinator.ShardRun run = digestShardCoordinator.runShards(processed::add);
+
+        assertEquals(4, run.processed());
+        assertTrue(run.complete());
+        assertEquals(Set.of(0, 1, 2, 3), new HashSet<>(processed));
+        assertEquals(4, processed.size());
+    }
+
+    @Test
+    void testRunShards_ShardHeldByOtherNode_ReportedBusyWithoutWaiting() {
+        List<Integer> processed = new ArrayList<>();
+        when(schedulerLockService.runExclusively(anyString(), any(), any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0).equals("digest-shard-2")) {
+                return false;
+            }
+            invocation.getArgument(2, Runnable.class).run();
+            return true;
+        });
+
+        DigestShardCoordinator.ShardRun run = digestShardCoordinator.runShards(processed::add);
+
+        assertEquals(3, run.processed());
+        assertFalse(run.complete());
+        assertEquals(List.of(2), run.busy());
+        assertEquals(Set.of(0, 1, 3), new HashSet<>(processed));
+        verify(schedulerLockService, times(4)).runExclusively(anyString(), any(), any());
+    }
+
+    @Test
+    void testPerRecipient_RunsAllCategoriesInOneShard() {
+        runTaskWhenLocked();
+        DigestShardCoordinator perRecipient = new DigestShardCoordinator(schedulerLockService, 4, 900, DigestConsolidationMode.PER_RECIPIENT);
+        List<Integer> processed = new ArrayList<>();
+
+        perRecipient.runShards(processed::add);
+
+        assertEquals(1, perRecipient.getShards());
+        assertEquals(0, perRecipient.shardOf("FANTASY"));
+        assertEquals(0, perRecipient.shardOf("HORROR"));
+        assertEquals(List.of(0), processed);
+    }
+
+    @Test
+    void testRunShards_FailingShard_ReportedAndOthersStillRun() {
+        runTaskWhenLocked();
+        List<Integer> processed = new ArrayList<>();
+
+        DigestShardCoordinator.ShardRun run = digestShardCoordinator.runShards(shard -> {
+            if (shard == 1) {
+                throw new IllegalStateException("broker down");
+            }
+            processed.add(shard);
+        });
+
+        assertFalse(run.complete());
+        assertEquals(List.of(1), run.failed());
+        assertEquals(Set.of(0, 2, 3), new HashSet<>(processed));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.subscription.SubscriptionJdbcRepository;
+import com.example.libraryservice.subscription.index.SubscriptionIndex;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DigestSubscriberReaderTest {
+
+    @Mock
+    private SubscriptionJdbcRepository subscriptionJdbcRepository;
+
+    @Mock
+    private SubscriptionIndex subscriptionIndex;
+
+    @InjectMocks
+    private DigestSubscriberReader digestSubscriberReader;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void forEachSubscriber_SkipsAdjacentDuplicates() {
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(1);
+            Stream.of(new CategorySubscriber("FANTASY", "a@example.com"),
+                    new CategorySubscriber("FANTASY", "a@example.com"),
+                    new CategorySubscriber("FANTASY", "b@example.com"),
+                    new CategorySubscriber("HORROR", "a@example.com")).forEach(consumer);
+            return null;
+        }).when(subscriptionJdbcRepository).forEachActiveSubscriber(eq(Set.of("FANTASY", "HORROR")), any());
+
+        List<String> received = new ArrayList<>();
+        digestSubscriberReader.forEachSubscriber(Set.of("FANTASY", "HORROR"),
+                subscriber -> received.add(subscriber.getCategoryName() + ":" + subscriber.getUserEmail()));
+
+        assertEquals(List.of("FANTASY:a@example.com", "FANTASY:b@example.com", "HORROR:a@example.com"), received);
+    }
+
+    @Test
+    void forEachSubscriber_NoCategories_DoesNotQuery() {
+        digestSubscriberReader.forEachSubscriber(Set.of(), subscriber -> {
+        });
+
+        verify(subscriptionJdbcRepository, never()).forEachActiveSubscriber(any(), any());
+    }
+
+    @Test
+    void forEachSubscriber_IndexReady_DoesNotQueryDatabase() {
+        when(subscriptionIndex.isCurrent()).thenReturn(true);
+        Consumer<CategorySubscriber> consumer = subscriber -> {
+        };
+
+        digestSubscriberReader.forEachSubscriber(Set.of("FANTASY"), consumer);
+
+        verify(subscriptionIndex).forEachSubscriber(Set.of("FANTASY"), consumer);
+        verifyNoInteractions(subscriptionJdbcRepository);
+    }
+}
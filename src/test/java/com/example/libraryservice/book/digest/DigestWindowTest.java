@@ -0,0 +1,79 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.user.UserRepository;
+import com.example.libraryservice.user.model.DigestSlotPreference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class DigestWindowTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private DigestWindow digestWindow;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        digestWindow = new DigestWindow(userRepository, true, "19:00", 240, 8);
+    }
+
+    @Test
+    void testWindowStart_BeforeStartBelongsToPreviousDay() {
+        assertEquals(LocalDateTime.of(2024, 3, 10, 19, 0), digestWindow.windowStart(LocalDateTime.of(2024, 3, 10, 19, 5)));
+        assertEquals(LocalDateTime.of(2024, 3, 9, 19, 0), digestWindow.windowStart(LocalDateTime.of(2024, 3, 10, 8, 0)));
+    }
+
+    @Test
+    void testSlotAt_SplitsWindowAndClampsToLastSlot() {
+        assertEquals(0, digestWindow.slotAt(LocalDateTime.of(2024, 3, 10, 19, 29)));
+        assertEquals(1, digestWindow.slotAt(LocalDateTime.of(2024, 3, 10, 19, 30)));
+        assertEquals(7, digestWindow.slotAt(LocalDateTime.of(2024, 3, 10, 22, 59)));
+        assertEquals(7, digestWindow.slotAt(LocalDateTime.of(2024, 3, 11, 1, 0)));
+    }
+
+    @Test
+    void testSlotOf_PreferenceWinsOverHash() {
+        assertEquals(3, digestWindow.slotOf("a@example.com", Map.of("a@example.com", 3)));
+        assertEquals(Math.floorMod("b@example.com".hashCode(), 8), digestWindow.slotOf("b@example.com", Map.of()));
+        assertEquals(Math.floorMod("c@example.com".hashCode(), 8), digestWindow.slotOf("c@example.com", Map.of("c@example.com", 42)));
+    }
+
+    @Test
+    void testRecipientsInSlots_IncludesSkippedSlots() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        when(userRepository.findDigestSlotPreferences(windowStart)).thenReturn(List.of(
+                new DigestSlotPreference("a@example.com", 1),
+                new DigestSlotPreference("b@example.com", 2),
+                new DigestSlotPreference("c@example.com", 4)));
+
+        Predicate<String> recipients = digestWindow.recipientsInSlots(windowStart, 0, 2);
+
+        assertTrue(recipients.test("a@example.com"));
+        assertTrue(recipients.test("b@example.com"));
+        assertFalse(recipients.test("c@example.com"));
+    }
+
+    @Test
+    void testRecipientsInSlots_NoSlotInForceThisWindow_FallsBackToHash() {
+        LocalDateTime windowStart = LocalDateTime.of(2024, 3, 10, 19, 0);
+        //slot wybrany w trakcie okna - w tym oknie obowiązuje jeszcze slot z hasza
+        when(userRepository.findDigestSlotPreferences(windowStart)).thenReturn(List.of(
+                new DigestSlotPreference("a@example.com", null)));
+        int hashSlot = Math.floorMod("a@example.com".hashCode(), 8);
+
+        Predicate<String> recipients = digestWindow.recipientsInSlots(windowStart, hashSlot - 1, hashSlot);
+
+        assertTrue(recipients.test("a@example.com"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.libraryservice.book.digest;
+
+import com.example.libraryservice.rabbit.model.BookInfo;
+import com.example.libraryservice.rabbit.model.MailInfoRabbit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipientBatcherTest {
+
+    private final List<BookInfo> books = List.of(new BookInfo("Dune", "SCIENCE_FICTION", "Frank Herbert"));
+
+    @Test
+    void add_SplitsByMaxRecipients() {
+        List<MailInfoRabbit> sent = new ArrayList<>();
+        RecipientBatcher batcher = new RecipientBatcher("SCIENCE_FICTION", books, 2, 1_000_000, sent::add);
+
+        for (int i = 0; i < 5; i++) {
+            batcher.add("user" + i + "@example.com");
+        }
+        batcher.flush();
+
+        assertEquals(List.of(2, 2, 1), sent.stream().map(mail -> mail.getSubscriberEmails().size()).toList());
+        assertTrue(sent.stream().allMatch(mail -> mail.getBookInfoList() == books));
+    }
+
+    @Test
+    void add_SplitsByPayloadBytes() {
+        List<MailInfoRabbit> sent = new ArrayList<>();
+        //książki 109 B, każdy adres 20 B
+        RecipientBatcher batcher = new RecipientBatcher("SCIENCE_FICTION", books, 1000, 150, sent::add);
+
+        for (int i = 0; i < 4; i++) {
+            batcher.add("user" + i + "@example.com");
+        }
+        batcher.flush();
+
+        assertEquals(List.of(2, 2), sent.stream().map(mail -> mail.getSubscriberEmails().size()).toList());
+    }
+
+    @Test
+    void add_BooksAloneExceedLimit_StillSendsOneRecipientPerMessage() {
+        List<MailInfoRabbit> sent = new ArrayList<>();
+        RecipientBatcher batcher = new RecipientBatcher("SCIENCE_FICTION", books, 1000, 10, sent::add);
+
+        batcher.add("a@example.com");
+        batcher.add("b@example.com");
+        batcher.flush();
+
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void flush_NoRecipients_SendsNothing() {
+        List<MailInfoRabbit> sent = new ArrayList<>();
+        new RecipientBatcher("SCIENCE_FICTION", books, 10, 1000, sent::add).flush();
+
+        assertTrue(sent.isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.libraryservice.book.search;
+
+import com.example.libraryservice.book.BookRepository;
+import com.example.libraryservice.book.model.Book;
+import com.example.libraryservice.book.model.BookDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class BookSearchIndexTest {
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        List<BookDto> books = List.of(
+                BookDto.builder().id(1).title("The Hobbit").author("John Tolkien").category("FANTASY").build(),
+                BookDto.builder().id(2).title("Dune").author("Frank Herbert").category("SCIENCE_FICTION").build(),
+                BookDto.builder().id(3).title("The Silmarillion").author("John Tolkien").category("FANTASY").build());
+        when(bookRepository.findNextDtos(eq(0), any(Pageable.class))).thenReturn(books);
+
+        bookSearchIndex.rebuild();
+    }
+
+    @Test
+    void testSearch_MatchesAllTermsAcrossFields() {
+        Page<BookDto> result = bookSearchIndex.search("tolkien hobbit", PageRequest.of(0, 10));
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("The Hobbit", result.getContent().get(0).getTitle());
+    }
+
+    @Test
+    void testSearch_PrefixAndPaging() {
+        Page<BookDto> result = bookSearchIndex.search("tolk", PageRequest.of(1, 1));
+
+        assertEquals(2, result.getTotalElements());
+        assertEquals(3, result.getContent().get(0).getId());
+    }
+
+    @Test
+    void testSearch_CategoryTokens() {
+        Page<BookDto> result = bookSearchIndex.search("fiction", PageRequest.of(0, 10));
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Dune", result.getContent().get(0).getTitle());
+    }
+
+    @Test
+    void testIndex_ReplacesPreviousTokens() {
+        bookSearchIndex.index(Book.builder().id(2).title("Children of Dune").author("Frank Herbert").category("CLASSIC").build());
+
+        assertEquals(0, bookSearchIndex.search("fiction", PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, bookSearchIndex.search("children", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void testMarkBlocked() {
+        bookSearchIndex.markBlocked(List.of(1), true);
+
+        BookDto book = bookSearchIndex.search("hobbit", PageRequest.of(0, 10)).getContent().get(0);
+        assertTrue(book.isBlocked());
+    }
+
+    @Test
+    void testMarkBlocked_InTransaction_AppliedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bookSearchIndex.markBlocked(List.of(1), true);
+            assertFalse(bookSearchIndex.search("hobbit", PageRequest.of(0, 10)).getContent().get(0).isBlocked());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(bookSearchIndex.search("hobbit", PageRequest.of(0, 10)).getContent().get(0).isBlocked());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.libraryservice.common.executor;
+
+import com.example.libraryservice.common.enums.ExecutorMode;
+import com.example.libraryservice.monitoring_logs.ExecutorStatisticsDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManagedExecutorTest {
+
+    private ManagedExecutor managedExecutor;
+
+    @AfterEach
+    void tearDown() {
+        if (managedExecutor != null) {
+            managedExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void testExecute_QueueFull_RunsTaskInCallerThread() throws InterruptedException {
+        managedExecutor = new ManagedExecutor("test", ExecutorMode.PLATFORM, 1, 1, 60, 1, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        managedExecutor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        managedExecutor.execute(() -> await(release));
+
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        managedExecutor.execute(() -> runner.set(Thread.currentThread()));
+        release.countDown();
+
+        assertSame(Thread.currentThread(), runner.get());
+        assertEquals(1, managedExecutor.stats().getCallerRunsCount());
+    }
+
+    @Test
+    void testExecute_GrowsPastCoreSizeWhenQueueIsFull() throws InterruptedException {
+        managedExecutor = new ManagedExecutor("test", ExecutorMode.PLATFORM, 1, 3, 60, 1, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(3);
+        for (int i = 0; i < 4; i++) {
+            managedExecutor.execute(() -> {
+                running.countDown();
+                await(release);
+            });
+        }
+
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        ExecutorStatisticsDto stats = managedExecutor.stats();
+        release.countDown();
+
+        assertEquals(3, stats.getPoolSize());
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(0, stats.getCallerRunsCount());
+    }
+
+    @Test
+    void testShutdown_DrainsQueuedTasksAndCollectsMetrics() {
+        managedExecutor = new ManagedExecutor("test", ExecutorMode.PLATFORM, 2, 2, 60, 100, Duration.ofSeconds(5));
+        AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            managedExecutor.execute(done::incrementAndGet);
+        }
+        managedExecutor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        managedExecutor.shutdown();
+
+        assertEquals(20, done.get());
+        ExecutorStatisticsDto stats = managedExecutor.stats();
+        assertEquals(21, stats.getSubmittedCount());
+        assertEquals(21, stats.getCompletedCount());
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(0, stats.getActiveTasks());
+        assertThrows(RejectedExecutionException.class, () -> managedExecutor.execute(done::incrementAndGet));
+    }
+
+    @Test
+    void testVirtualMode_FallsBackToPlatformThreadsWhenUnavailable() throws InterruptedException {
+        managedExecutor = new ManagedExecutor("test", ExecutorMode.VIRTUAL, 1, 2, 60, 10, Duration.ofSeconds(5));
+        CountDownLatch ran = new CountDownLatch(1);
+
+        managedExecutor.execute(ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        //na JVM bez wątków wirtualnych executor przechodzi na zwykłą pulę
+        String expectedMode = Runtime.version().feature() >= 21 ? "VIRTUAL" : "PLATFORM";
+        assertEquals(expectedMode, managedExecutor.stats().getMode());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
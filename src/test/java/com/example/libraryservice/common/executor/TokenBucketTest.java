@@ -0,0 +1,58 @@
+package com.example.libraryservice.common.executor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testReserve_BurstIsFreeThenPacesAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(100_000_000L, bucket.reserve());
+        assertEquals(200_000_000L, bucket.reserve());
+    }
+
+    @Test
+    void testReserve_RefillsOverTimeUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+        bucket.reserve();
+        bucket.reserve();
+
+        clock.addAndGet(10_000_000_000L);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertTrue(bucket.reserve() > 0);
+    }
+
+    @Test
+    void testReserve_NonPositiveRate_Unlimited() {
+        TokenBucket bucket = new TokenBucket(0, 1, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.reserve());
+        }
+        assertEquals(0, bucket.getThrottledMillis());
+    }
+
+    @Test
+    void testTryAcquire_GrantsOnlyAvailableTokensAndAcceptsReturns() {
+        TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+
+        assertEquals(5, bucket.tryAcquire(20));
+        assertEquals(0, bucket.tryAcquire(20));
+
+        bucket.release(2);
+        clock.addAndGet(100_000_000L);
+
+        assertEquals(3, bucket.tryAcquire(20));
+    }
+}
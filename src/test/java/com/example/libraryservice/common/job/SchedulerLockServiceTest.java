@@ -0,0 +1,109 @@
+package com.example.libraryservice.common.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SchedulerLockServiceTest {
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    private SchedulerLockService schedulerLockService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        schedulerLockService = new SchedulerLockService(schedulerLockRepository, "node-a");
+    }
+
+    @AfterEach
+    void tearDown() {
+        schedulerLockService.shutdown();
+    }
+
+    @Test
+    void testTryAcquire_CreatesMissingRowAndClaimsLease() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(false);
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(1);
+
+        assertTrue(schedulerLockService.tryAcquire("job", Duration.ofMinutes(5)));
+        verify(schedulerLockRepository).saveAndFlush(any(SchedulerLock.class));
+    }
+
+    @Test
+    void testTryAcquire_RowCreatedConcurrently_StillTriesToClaim() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(false);
+        when(schedulerLockRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(0);
+
+        assertFalse(schedulerLockService.tryAcquire("job", Duration.ofMinutes(5)));
+        verify(schedulerLockRepository).acquire(eq("job"), eq("node-a"), any(), any());
+    }
+
+    @Test
+    void testRunExclusively_RunsTaskAndReleasesLock() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(true);
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(1);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertTrue(schedulerLockService.runExclusively("job", Duration.ofMinutes(5), () -> ran.set(true)));
+
+        assertTrue(ran.get());
+        verify(schedulerLockRepository).release(eq("job"), eq("node-a"), any());
+    }
+
+    @Test
+    void testRunExclusively_LockHeld_SkipsTask() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(true);
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(0);
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertFalse(schedulerLockService.runExclusively("job", Duration.ofMinutes(5), () -> ran.set(true)));
+
+        assertFalse(ran.get());
+        verify(schedulerLockRepository, never()).release(any(), any(), any());
+    }
+
+    @Test
+    void testRunExclusively_TaskFails_ReleasesLock() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(true);
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> schedulerLockService.runExclusively("job", Duration.ofMinutes(5), () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        verify(schedulerLockRepository).release(eq("job"), eq("node-a"), any());
+    }
+
+    @Test
+    void testRunExclusively_LongTask_ExtendsLeaseUntilFinished() {
+        when(schedulerLockRepository.existsById("job")).thenReturn(true);
+        when(schedulerLockRepository.acquire(eq("job"), eq("node-a"), any(), any())).thenReturn(1);
+        when(schedulerLockRepository.extend(eq("job"), eq("node-a"), any(), any())).thenReturn(1);
+
+        schedulerLockService.runExclusively("job", Duration.ofMillis(60), () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        verify(schedulerLockRepository, atLeast(2)).extend(eq("job"), eq("node-a"), any(), any());
+        verify(schedulerLockRepository).release(eq("job"), eq("node-a"), any());
+        clearInvocations(schedulerLockRepository);
+        verify(schedulerLockRepository, after(100).never()).extend(any(), any(), any(), any());
+    }
+}
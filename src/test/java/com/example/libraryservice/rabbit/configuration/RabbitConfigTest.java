@@ -0,0 +1,80 @@
+package com.example.libraryservice.rabbit.configuration;
+
+import com.example.libraryservice.common.enums.RabbitWireFormat;
+import com.example.libraryservice.monitoring_logs.LogMessage;
+import com.example.libraryservice.rabbit.model.BookInfo;
+import com.example.libraryservice.rabbit.model.MailInfoRabbit;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RabbitConfigTest {
+
+    private final RabbitConfig rabbitConfig = new RabbitConfig();
+
+    private static MailInfoRabbit digestFor(int recipients) {
+        List<String> emails = new ArrayList<>();
+        IntStream.range(0, recipients).forEach(i -> emails.add("subscriber" + i + "@example.com"));
+        return new MailInfoRabbit(emails, List.of(new BookInfo("Dune", "SCIENCE_FICTION", "Frank Herbert")));
+    }
+
+    @Test
+    void defaultFormat_StaysJson() {
+        MessageConverter converter = rabbitConfig.jsonMessageConverter(RabbitWireFormat.JSON, false, 0);
+
+        Message message = converter.toMessage(new BookInfo("Dune", "SCIENCE_FICTION", "Frank Herbert"), new MessageProperties());
+
+        assertEquals("application/json", message.getMessageProperties().getContentType());
+        assertNotEquals("gzip", message.getMessageProperties().getContentEncoding());
+    }
+
+    @Test
+    void binaryFormats_RoundTripAndAreSmallerThanJson() {
+        LogMessage logMessage = new LogMessage("user@example.com", "BookService", "save", 5, LocalDateTime.of(2030, 1, 1, 12, 0));
+        int jsonSize = rabbitConfig.jsonMessageConverter(RabbitWireFormat.JSON, false, 0)
+                .toMessage(digestFor(1000), new MessageProperties()).getBody().length;
+
+        for (RabbitWireFormat format : List.of(RabbitWireFormat.CBOR, RabbitWireFormat.SMILE)) {
+            MessageConverter converter = rabbitConfig.jsonMessageConverter(format, false, 0);
+
+            Message message = converter.toMessage(logMessage, new MessageProperties());
+
+            assertEquals(format.getContentType(), message.getMessageProperties().getContentType());
+            assertEquals(logMessage, converter.fromMessage(message));
+            assertTrue(converter.toMessage(digestFor(1000), new MessageProperties()).getBody().length < jsonSize);
+        }
+    }
+
+    @Test
+    void inboundMessage_IsDecodedByItsContentType() {
+        BookInfo bookInfo = new BookInfo("Dune", "SCIENCE_FICTION", "Frank Herbert");
+        Message json = rabbitConfig.jsonMessageConverter(RabbitWireFormat.JSON, false, 0)
+                .toMessage(bookInfo, new MessageProperties());
+
+        Object decoded = rabbitConfig.jsonMessageConverter(RabbitWireFormat.CBOR, false, 0).fromMessage(json);
+
+        assertInstanceOf(BookInfo.class, decoded);
+        assertEquals("Dune", ((BookInfo) decoded).getTitle());
+    }
+
+    @Test
+    void compression_AppliesOnlyAboveThreshold() {
+        MessageConverter converter = rabbitConfig.jsonMessageConverter(RabbitWireFormat.CBOR, true, 1024);
+
+        Message small = converter.toMessage(new BookInfo("Dune", "SCIENCE_FICTION", "Frank Herbert"), new MessageProperties());
+        Message large = converter.toMessage(digestFor(1000), new MessageProperties());
+
+        assertNull(small.getMessageProperties().getContentEncoding());
+        assertEquals("gzip", large.getMessageProperties().getContentEncoding());
+        MailInfoRabbit decoded = (MailInfoRabbit) converter.fromMessage(large);
+        assertEquals(1000, decoded.getSubscriberEmails().size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.monitoring_logs.PublisherStatisticsDto;
+import com.rabbitmq.client.ConfirmCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ConfirmedPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    private final PublisherCounters publisherCounters = new PublisherCounters();
+
+    private ConfirmedPublisher confirmedPublisher;
+
+    private final AtomicLong sequence = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        confirmedPublisher = new ConfirmedPublisher(rabbitTemplate, publisherCounters, 10, 5, 100, 1000, 2);
+        when(rabbitOperations.execute(any())).thenAnswer(invocation -> sequence.getAndIncrement());
+    }
+
+    //symuluje brokera: po publikacji paczki potwierdza numery ze zbioru acked, pozostałe odrzuca
+    private void brokerConfirms(List<Long> acked, List<Long> nacked) {
+        when(rabbitTemplate.invoke(any(), any(), any())).thenAnswer(invocation -> {
+            ConfirmCallback ack = invocation.getArgument(1);
+            ConfirmCallback nack = invocation.getArgument(2);
+            doAnswer(wait -> {
+                for (Long tag : acked) {
+                    ack.handle(tag, false);
+                }
+                for (Long tag : nacked) {
+                    nack.handle(tag, false);
+                }
+                return true;
+            }).when(rabbitOperations).waitForConfirms(anyLong());
+            return invocation.<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations);
+        });
+    }
+
+    @Test
+    void publishBatch_AllAcked_CountsConfirms() {
+        brokerConfirms(List.of(1L, 2L), List.of());
+        List<ConfirmedPublisher.PendingMessage> batch = List.of(
+                new ConfirmedPublisher.PendingMessage("library-queue", "a", 1),
+                new ConfirmedPublisher.PendingMessage("library-queue", "b", 1));
+
+        int confirmed = confirmedPublisher.publishBatch(batch);
+
+        assertEquals(2, confirmed);
+        PublisherStatisticsDto stats = publisherCounters.stats().get("library-queue");
+        assertEquals(2, stats.getPublishedCount());
+        assertEquals(2, stats.getConfirmedCount());
+        assertEquals(0, stats.getRetriedCount());
+    }
+
+    @Test
+    void publishBatch_NackedMessage_IsRetriedUntilMaxAttempts() {
+        List<ConfirmedPublisher.PendingMessage> batch = List.of(
+                new ConfirmedPublisher.PendingMessage("library-queue", "a", 1),
+                new ConfirmedPublisher.PendingMessage("library-queue", "b", 1),
+                new ConfirmedPublisher.PendingMessage("library-queue", "c", 2));
+        brokerConfirms(List.of(1L), List.of(2L, 3L));
+
+        int confirmed = confirmedPublisher.publishBatch(batch);
+
+        assertEquals(1, confirmed);
+        PublisherStatisticsDto stats = publisherCounters.stats().get("library-queue");
+        assertEquals(2, stats.getNackedCount());
+        assertEquals(1, stats.getRetriedCount());
+        assertEquals(1, stats.getFailedCount());
+    }
+
+    @Test
+    void publishBatch_ConfirmTimeout_RetriesUnconfirmedMessages() {
+        when(rabbitTemplate.invoke(any(), any(), any())).thenAnswer(invocation -> {
+            ConfirmCallback ack = invocation.getArgument(1);
+            doAnswer(wait -> {
+                ack.handle(1L, false);
+                throw new AmqpTimeoutException("no confirms");
+            }).when(rabbitOperations).waitForConfirms(anyLong());
+            return invocation.<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations);
+        });
+        List<ConfirmedPublisher.PendingMessage> batch = List.of(
+                new ConfirmedPublisher.PendingMessage("library-queue", "a", 1),
+                new ConfirmedPublisher.PendingMessage("logging-queue", "b", 1));
+
+        int confirmed = confirmedPublisher.publishBatch(batch);
+
+        assertEquals(1, confirmed);
+        assertEquals(1, publisherCounters.stats().get("library-queue").getConfirmedCount());
+        assertEquals(1, publisherCounters.stats().get("logging-queue").getRetriedCount());
+    }
+
+    @Test
+    void publishBatch_MultipleAck_SettlesAllUpToTag() {
+        when(rabbitTemplate.invoke(any(), any(), any())).thenAnswer(invocation -> {
+            ConfirmCallback ack = invocation.getArgument(1);
+            doAnswer(wait -> {
+                ack.handle(3L, true);
+                return true;
+            }).when(rabbitOperations).waitForConfirms(anyLong());
+            return invocation.<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations);
+        });
+        List<ConfirmedPublisher.PendingMessage> batch = List.of(
+                new ConfirmedPublisher.PendingMessage("library-queue", "a", 1),
+                new ConfirmedPublisher.PendingMessage("library-queue", "b", 1),
+                new ConfirmedPublisher.PendingMessage("library-queue", "c", 1));
+
+        assertEquals(3, confirmedPublisher.publishBatch(batch));
+        assertEquals(3, publisherCounters.stats().get("library-queue").getConfirmedCount());
+    }
+}
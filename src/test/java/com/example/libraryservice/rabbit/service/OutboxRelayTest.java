@@ -0,0 +1,108 @@
+package com.example.libraryservice.rabbit.service;
+
+import com.example.libraryservice.common.executor.TokenBucket;
+import com.example.libraryservice.rabbit.model.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations rabbitOperations;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxRelay = new OutboxRelay(outboxMessageRepository, rabbitTemplate, new ObjectMapper(), new PublisherCounters(),
+                new PublishPacer(new TokenBucket(0, 1), List.of("library-queue")), transactionManager, 2, 1000);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitTemplate.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitOperations));
+    }
+
+    @Test
+    void relayBatch_PublishesWaitsForConfirmsAndDeletes() {
+        when(outboxMessageRepository.findBatchForRelayExcluding(any(), any(Pageable.class))).thenReturn(List.of(
+                message(1L, "logging-queue", "\"first\""),
+                message(2L, "logging-queue", "\"second\"")));
+
+        assertEquals(2, outboxRelay.relayBatch());
+
+        verify(rabbitOperations).convertAndSend("logging-queue", (Object) "first");
+        verify(rabbitOperations).convertAndSend("logging-queue", (Object) "second");
+        verify(rabbitOperations).waitForConfirmsOrDie(1000);
+        verify(outboxMessageRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void relay_BrokerNacks_KeepsMessagesInOutbox() {
+        when(outboxMessageRepository.findBatchForRelayExcluding(any(), any(Pageable.class)))
+                .thenReturn(List.of(message(1L, "logging-queue", "\"first\"")));
+        doThrow(new AmqpException("nack")).when(rabbitOperations).waitForConfirmsOrDie(anyLong());
+
+        outboxRelay.relay();
+
+        verify(outboxMessageRepository, never()).deleteAllByIdInBatch(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    private OutboxMessage message(Long id, String queueName, String payload) {
+        return OutboxMessage.builder().id(id).queueName(queueName).payloadType(String.class.getName()).payload(payload).build();
+    }
+
+    @Test
+    void relay_UnpacedQueues_UseFullBatchAndSkipPacedRows() {
+        when(outboxMessageRepository.findBatchForRelayExcluding(any(), any(Pageable.class))).thenReturn(List.of());
+
+        outboxRelay.relay();
+
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(outboxMessageRepository).findBatchForRelayExcluding(eq(Set.of("library-queue")), captor.capture());
+        assertEquals(2, captor.getValue().getPageSize());
+    }
+
+    @Test
+    void relay_PacedQueue_SendsOnlyAvailablePermitsWithoutWaiting() {
+        //żetony prawie się nie odnawiają - po dwóch wiadomościach relay ma skończyć, a nie czekać
+        OutboxRelay pacedRelay = new OutboxRelay(outboxMessageRepository, rabbitTemplate, new ObjectMapper(), new PublisherCounters(),
+                new PublishPacer(new TokenBucket(0.001, 2), List.of("library-queue")), transactionManager, 200, 1000);
+        when(outboxMessageRepository.findBatchForRelayExcluding(any(), any(Pageable.class))).thenReturn(List.of());
+        when(outboxMessageRepository.findBatchForRelayIn(any(), any(Pageable.class))).thenReturn(List.of(
+                message(1L, "library-queue", "\"first\""),
+                message(2L, "library-queue", "\"second\"")));
+
+        pacedRelay.relay();
+
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(outboxMessageRepository).findBatchForRelayIn(eq(Set.of("library-queue")), captor.capture());
+        assertEquals(2, captor.getValue().getPageSize());
+        verify(rabbitOperations, times(2)).convertAndSend(eq("library-queue"), any(Object.class));
+        verify(outboxMessageRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.libraryservice.rabbit.service;
+
+
+import com.example.libraryservice.common.exception.model.RabbitMessageSendingException;
+import com.example.libraryservice.common.enums.RabbitPublishMode;
+import com.example.libraryservice.monitoring_logs.LogMessage;
+import com.example.libraryservice.rabbit.model.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RabbitMqServiceTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private BatchingPublisher batchingPublisher;
+
+    @Mock
+    private ConfirmedPublisher confirmedPublisher;
+
+    @Mock
+    private PublishPacer publishPacer;
+
+    private final PublisherCounters publisherCounters = new PublisherCounters();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void send_OutboxEnabled_StoresMessageInsteadOfPublishing() throws Exception {
+        RabbitMqService rabbitMqService = createService(true, RabbitPublishMode.DIRECT);
+        LogMessage logMessage = new LogMessage("user@example.com", "BookService", "save", 5, LocalDateTime.now());
+
+        rabbitMqService.send(logMessage, "logging-queue");
+
+        ArgumentCaptor<OutboxMessage> captor = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxMessageRepository).save(captor.capture());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertEquals("logging-queue", captor.getValue().getQueueName());
+        verifyNoInteractions(publishPacer);
+        assertEquals(LogMessage.class.getName(), captor.getValue().getPayloadType());
+        assertEquals(logMessage, objectMapper.readValue(captor.getValue().getPayload(), LogMessage.class));
+    }
+
+    @Test
+    void send_OutboxDisabled_PublishesDirectly() {
+        RabbitMqService rabbitMqService = createService(false, RabbitPublishMode.DIRECT);
+
+        rabbitMqService.send("message", "library-queue");
+
+        verify(rabbitTemplate).convertAndSend("library-queue", (Object) "message");
+        verifyNoInteractions(outboxMessageRepository);
+        assertEquals(1, publisherCounters.stats().get("library-queue").getPublishedCount());
+        verify(publishPacer).pace("library-queue");
+    }
+
+    @Test
+    void send_BatchingMode_HandsMessageToBatchingPublisher() {
+        createService(false, RabbitPublishMode.BATCHING).send("message", "library-queue");
+
+        verify(batchingPublisher).publish("library-queue", "message");
+        verifyNoInteractions(rabbitTemplate, confirmedPublisher);
+    }
+
+    @Test
+    void send_ConfirmedMode_HandsMessageToConfirmedPublisher() {
+        createService(false, RabbitPublishMode.CONFIRMED).send("message", "library-queue");
+
+        verify(confirmedPublisher).publish("library-queue", "message");
+        verifyNoInteractions(rabbitTemplate, batchingPublisher);
+    }
+
+    private RabbitMqService createService(boolean outboxEnabled, RabbitPublishMode publishMode) {
+        return new RabbitMqService(rabbitTemplate, outboxMessageRepository, objectMapper, publisherCounters,
+                batchingPublisher, confirmedPublisher, publishPacer, outboxEnabled, publishMode);
+    }
+
+    @Test
+    void send_DirectBrokerError_IsReportedToCaller() {
+        RabbitMqService rabbitMqService = createService(false, RabbitPublishMode.DIRECT);
+        doThrow(new AmqpException("connection refused")).when(rabbitTemplate).convertAndSend(anyString(), any(Object.class));
+
+        assertThrows(RabbitMessageSendingException.class, () -> rabbitMqService.send("message", "library-queue"));
+        assertEquals(1, publisherCounters.stats().get("library-queue").getFailedCount());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.libraryservice.rental;
+
+import com.example.libraryservice.common.enums.RentalLockingMode;
+import com.example.libraryservice.common.exception.model.RentalException;
+import com.example.libraryservice.rental.command.CreateRentalCommand;
+import com.example.libraryservice.rental.model.RentalDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RentalCheckoutServiceTest {
+
+    @Mock
+    private RentalService rentalService;
+
+    private CreateRentalCommand command;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        command = new CreateRentalCommand();
+        command.setBookId(1);
+        command.setFromDate(LocalDate.now().plusDays(1));
+        command.setToDate(LocalDate.now().plusDays(3));
+    }
+
+    @Test
+    void rentBook_PessimisticMode_UsesLockingPath() {
+        RentalCheckoutService checkoutService = new RentalCheckoutService(rentalService, RentalLockingMode.PESSIMISTIC, 3, 100, 4);
+
+        checkoutService.rentBook(command);
+
+        verify(rentalService).rentBook(command);
+        verify(rentalService, never()).rentBookOptimistic(any());
+    }
+
+    @Test
+    void rentBook_OptimisticConflict_RetriesUntilSuccess() {
+        RentalCheckoutService checkoutService = new RentalCheckoutService(rentalService, RentalLockingMode.OPTIMISTIC, 3, 100, 4);
+        RentalDto rentalDto = new RentalDto();
+        when(rentalService.rentBookOptimistic(command))
+                .thenThrow(new ObjectOptimisticLockingFailureException("Book", 1))
+                .thenReturn(rentalDto);
+
+        assertSame(rentalDto, checkoutService.rentBook(command));
+        verify(rentalService, times(2)).rentBookOptimistic(command);
+    }
+
+    @Test
+    void rentBook_StripedModeConflictPersists_ThrowsRentalException() {
+        RentalCheckoutService checkoutService = new RentalCheckoutService(rentalService, RentalLockingMode.STRIPED, 3, 100, 4);
+        when(rentalService.rentBookOptimistic(command)).thenThrow(new ObjectOptimisticLockingFailureException("Book", 1));
+
+        RentalException exception = assertThrows(RentalException.class, () -> checkoutService.rentBook(command));
+        assertEquals("RENTAL_CHECKOUT_CONFLICT", exception.getMessage());
+        verify(rentalService, times(3)).rentBookOptimistic(command);
+    }
+}
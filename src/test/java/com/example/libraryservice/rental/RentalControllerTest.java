@@ -5,6 +5,8 @@ import com.example.libraryservice.book.model.Book;
 import com.example.libraryservice.common.enums.Role;
 import com.example.libraryservice.monitoring_logs.LogMessage;
 import com.example.libraryservice.rabbit.service.RabbitMqService;
+import com.example.libraryservice.rental.archive.RentalArchiver;
+import com.example.libraryservice.rental.command.CreateCartRentalCommand;
 import com.example.libraryservice.rental.command.CreateRentalCommand;
 import com.example.libraryservice.rental.model.Rental;
 import com.example.libraryservice.user.UserRepository;
@@ -61,6 +63,9 @@ class RentalControllerTest {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private RentalArchiver rentalArchiver;
+
     private String authToken;
 
     private Book book;
@@ -123,6 +128,53 @@ class RentalControllerTest {
         verify(rabbitMqService, times(1)).send(any(LogMessage.class), anyString());
     }
 
+    @Test
+    public void testRentBooksInCart() throws Exception {
+        Book secondBook = new Book();
+        secondBook.setTitle("Second Book");
+        bookRepository.save(secondBook);
+
+        CreateCartRentalCommand command = new CreateCartRentalCommand();
+        command.setFromDate(LocalDate.now().plusDays(40));
+        command.setToDate(LocalDate.now().plusDays(45));
+        command.setBookIds(List.of(secondBook.getId(), book.getId()));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/rentals/cart")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/rentals/cart")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testHistoryIncludesArchivedRentals() throws Exception {
+        User user = userRepository.findByEmail("test@example.com").orElseThrow();
+
+        Rental oldRental = new Rental();
+        oldRental.setUser(user);
+        oldRental.setBook(book);
+        oldRental.setReturned(true);
+        oldRental.setFromDate(LocalDate.now().minusDays(400));
+        oldRental.setToDate(LocalDate.now().minusDays(390));
+        rentalRepository.save(oldRental);
+
+        rentalArchiver.archive(LocalDate.now().minusDays(180));
+
+        assertTrue(rentalRepository.findById(oldRental.getId()).isEmpty());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/rentals/history")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .param("size", "100"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[?(@.id == " + oldRental.getId() + ")].returned").value(true));
+    }
+
     @Test
     public void testReturnBook() throws Exception {
         User user = userRepository.findByEmail("test@example.com").orElse(null);
@@ -5,7 +5,10 @@ import com.example.libraryservice.book.model.Book;
 import com.example.libraryservice.common.exception.model.RentalException;
 import com.example.libraryservice.common.exception.model.RentalNotFoundException;
 import com.example.libraryservice.common.exception.model.UserNotFoundException;
+import com.example.libraryservice.rental.command.CreateCartRentalCommand;
 import com.example.libraryservice.rental.command.CreateRentalCommand;
+import com.example.libraryservice.rental.interval.RentalIntervalIndex;
+import com.example.libraryservice.rental.model.FreeWindowDto;
 import com.example.libraryservice.rental.model.Rental;
 import com.example.libraryservice.rental.model.RentalDto;
 import com.example.libraryservice.user.UserRepository;
@@ -37,6 +40,12 @@ class RentalServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private RentalIntervalIndex rentalIntervalIndex;
+
+    @Mock
+    private RentalJdbcRepository rentalJdbcRepository;
+
     @InjectMocks
     private RentalService rentalService;
 
@@ -282,5 +291,73 @@ class RentalServiceTest {
         assertFalse(isAvailable);
     }
 
+    @Test
+    void rentBook_IndexReportsOverlap_RejectsWithoutLocking() {
+        CreateRentalCommand command = new CreateRentalCommand();
+        command.setBookId(1);
+        command.setFromDate(LocalDate.now().plusDays(3));
+        command.setToDate(LocalDate.now().plusDays(5));
+
+        when(rentalIntervalIndex.overlaps(1, command.getFromDate(), command.getToDate())).thenReturn(true);
 
-}
\ No newline at end of file
+        assertThrows(RentalException.class, () -> rentalService.rentBook(command));
+        verify(bookRepository, never()).findWithLockingById(anyInt());
+        verify(userRepository, never()).findWithLockingByEmail(anyString());
+        verify(rentalRepository, never()).save(any());
+    }
+
+    @Test
+    void findNextFreeWindow_ExistingBook_ReturnsWindowFromIndex() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        when(bookRepository.existsById(1)).thenReturn(true);
+        when(rentalIntervalIndex.nextFreeStart(1, from, 3)).thenReturn(from.plusDays(10));
+
+        FreeWindowDto window = rentalService.findNextFreeWindow(1, from, 3);
+
+        assertEquals(from.plusDays(10), window.getFromDate());
+        assertEquals(from.plusDays(12), window.getToDate());
+    }
+
+    @Test
+    void rentBookOptimistic_ReadsRowsWithoutPessimisticLocks() {
+        CreateRentalCommand command = new CreateRentalCommand();
+        command.setBookId(1);
+        command.setFromDate(LocalDate.now().plusDays(2));
+        command.setToDate(LocalDate.now().plusDays(4));
+
+        User user = new User();
+        user.setEmail("test@example.com");
+        Book book = new Book();
+        book.setId(1);
+
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(bookRepository.findWithVersionIncrementById(1)).thenReturn(Optional.of(book));
+        when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        RentalDto rentalDto = rentalService.rentBookOptimistic(command);
+
+        assertNotNull(rentalDto);
+        verify(userRepository, never()).findWithLockingByEmail(anyString());
+        verify(bookRepository, never()).findWithLockingById(anyInt());
+    }
+
+    @Test
+    void rentBooks_OneBookAlreadyRented_RejectsWholeCart() {
+        CreateCartRentalCommand command = new CreateCartRentalCommand();
+        command.setBookIds(List.of(3, 1, 2));
+        command.setFromDate(LocalDate.now().plusDays(2));
+        command.setToDate(LocalDate.now().plusDays(4));
+
+        User user = new User();
+        user.setEmail("test@example.com");
+        List<Book> books = List.of(Book.builder().id(1).build(), Book.builder().id(2).build(), Book.builder().id(3).build());
+
+        when(userRepository.findWithLockingByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(bookRepository.findAllWithLockingByIdIn(List.of(1, 2, 3))).thenReturn(books);
+        when(rentalRepository.findOverlappingBookIds(List.of(1, 2, 3), command.getFromDate(), command.getToDate()))
+                .thenReturn(List.of(2));
+
+        assertThrows(RentalException.class, () -> rentalService.rentBooks(command));
+        verify(rentalJdbcRepository, never()).insertBatch(anyString(), anyList(), any(), any());
+    }
+}
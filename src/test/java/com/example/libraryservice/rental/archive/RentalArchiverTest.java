@@ -0,0 +1,65 @@
+package com.example.libraryservice.rental.archive;
+
+import com.example.libraryservice.common.job.SchedulerLockService;
+import com.example.libraryservice.rental.RentalJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RentalArchiverTest {
+
+    private static final LocalDate CUTOFF = LocalDate.of(2030, 1, 1);
+
+    @Mock
+    private RentalJdbcRepository rentalJdbcRepository;
+
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private RentalArchiver rentalArchiver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rentalArchiver = new RentalArchiver(rentalJdbcRepository, schedulerLockService, 180, 2, 0, 3600);
+    }
+
+    @Test
+    void archive_MovesBatchesUntilShortBatch() {
+        when(rentalJdbcRepository.findArchivableIds(0, CUTOFF, 2)).thenReturn(List.of(3, 7));
+        when(rentalJdbcRepository.findArchivableIds(7, CUTOFF, 2)).thenReturn(List.of(9));
+        when(rentalJdbcRepository.moveToHistory(eq(List.of(3, 7)), any(LocalDateTime.class))).thenReturn(2);
+        when(rentalJdbcRepository.moveToHistory(eq(List.of(9)), any(LocalDateTime.class))).thenReturn(1);
+
+        assertEquals(3, rentalArchiver.archive(CUTOFF));
+        verify(rentalJdbcRepository, times(2)).findArchivableIds(anyInt(), eq(CUTOFF), eq(2));
+    }
+
+    @Test
+    void archive_NothingToArchive_DoesNotMove() {
+        when(rentalJdbcRepository.findArchivableIds(0, CUTOFF, 2)).thenReturn(List.of());
+
+        assertEquals(0, rentalArchiver.archive(CUTOFF));
+        verify(rentalJdbcRepository, never()).moveToHistory(any(), any());
+    }
+
+    @Test
+    void testArchiveReturnedRentals_LockHeldByAnotherNode_DoesNothing() {
+        when(schedulerLockService.runExclusively(eq(RentalArchiver.JOB_NAME), any(), any())).thenReturn(false);
+
+        rentalArchiver.archiveReturnedRentals();
+
+        verifyNoInteractions(rentalJdbcRepository);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.libraryservice.rental.interval;
+
+import com.example.libraryservice.rental.RentalRepository;
+import com.example.libraryservice.rental.model.RentalSpan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RentalIntervalIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    private RentalIntervalIndex rentalIntervalIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rentalIntervalIndex = new RentalIntervalIndex(rentalRepository, 100, 60);
+        when(rentalRepository.findActiveSpansByBookId(1)).thenReturn(List.of(
+                new RentalSpan(1, DAY, DAY.plusDays(4)),
+                new RentalSpan(2, DAY.plusDays(3), DAY.plusDays(6)),
+                new RentalSpan(3, DAY.plusDays(10), DAY.plusDays(12))));
+    }
+
+    @Test
+    void overlaps_RangeContainedInOrContainingRental_ReturnsTrue() {
+        assertTrue(rentalIntervalIndex.overlaps(1, DAY.plusDays(1), DAY.plusDays(2)));
+        assertTrue(rentalIntervalIndex.overlaps(1, DAY.plusDays(9), DAY.plusDays(13)));
+        assertTrue(rentalIntervalIndex.overlaps(1, DAY.plusDays(6), DAY.plusDays(6)));
+    }
+
+    @Test
+    void overlaps_RangeInGap_ReturnsFalse() {
+        assertFalse(rentalIntervalIndex.overlaps(1, DAY.plusDays(7), DAY.plusDays(9)));
+        assertFalse(rentalIntervalIndex.overlaps(1, DAY.minusDays(3), DAY.minusDays(1)));
+        verify(rentalRepository, times(1)).findActiveSpansByBookId(1);
+    }
+
+    @Test
+    void nextFreeStart_SkipsBlocksTooShortGaps() {
+        assertEquals(DAY.plusDays(7), rentalIntervalIndex.nextFreeStart(1, DAY, 3));
+        assertEquals(DAY.plusDays(13), rentalIntervalIndex.nextFreeStart(1, DAY, 4));
+        assertEquals(DAY.minusDays(5), rentalIntervalIndex.nextFreeStart(1, DAY.minusDays(5), 5));
+    }
+
+    @Test
+    void unregisterRental_SplitsMergedBlock() {
+        rentalIntervalIndex.overlaps(1, DAY, DAY);
+
+        rentalIntervalIndex.unregisterRental(1, 2);
+
+        assertFalse(rentalIntervalIndex.overlaps(1, DAY.plusDays(5), DAY.plusDays(9)));
+        assertTrue(rentalIntervalIndex.overlaps(1, DAY.plusDays(4), DAY.plusDays(4)));
+    }
+
+    @Test
+    void registerRental_MergesAdjacentBlocks() {
+        rentalIntervalIndex.overlaps(1, DAY, DAY);
+
+        rentalIntervalIndex.registerRental(1, new RentalSpan(4, DAY.plusDays(6), DAY.plusDays(10)));
+
+        assertTrue(rentalIntervalIndex.overlaps(1, DAY.plusDays(8), DAY.plusDays(8)));
+        assertEquals(DAY.plusDays(13), rentalIntervalIndex.nextFreeStart(1, DAY, 1));
+    }
+}
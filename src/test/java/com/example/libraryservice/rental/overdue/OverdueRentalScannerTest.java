@@ -0,0 +1,158 @@
+package com.example.libraryservice.rental.overdue;
+
+import com.example.libraryservice.common.job.JobCheckpoint;
+import com.example.libraryservice.common.job.JobCheckpointRepository;
+import com.example.libraryservice.common.job.SchedulerLockService;
+import com.example.libraryservice.rabbit.model.OverdueReminderBatchRabbit;
+import com.example.libraryservice.rabbit.service.RabbitMqService;
+import com.example.libraryservice.rental.RentalRepository;
+import com.example.libraryservice.rental.model.OverdueRentalRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OverdueRentalScannerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 5, 10);
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private RabbitMqService rabbitMqService;
+
+    @Mock
+    private SchedulerLockService schedulerLockService;
+
+    private OverdueRentalScanner overdueRentalScanner;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        overdueRentalScanner = new OverdueRentalScanner(rentalRepository, jobCheckpointRepository, rabbitMqService,
+                schedulerLockService, "overdue-queue", 2, 2, 3600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        overdueRentalScanner.shutdown();
+    }
+
+    @Test
+    void scan_ProcessesChunksAndCheckpointsUntilExhausted() {
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenReturn(Optional.empty());
+        when(rentalRepository.findOverdueAfter(eq(0), eq(TODAY), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "a@example.com"), row(2, "a@example.com")));
+        when(rentalRepository.findOverdueAfter(eq(2), eq(TODAY), any(Pageable.class)))
+                .thenReturn(List.of(row(5, "b@example.com")));
+
+        int processed = overdueRentalScanner.scan(TODAY);
+
+        assertEquals(3, processed);
+        ArgumentCaptor<OverdueReminderBatchRabbit> batches = ArgumentCaptor.forClass(OverdueReminderBatchRabbit.class);
+        verify(rabbitMqService, times(2)).send(batches.capture(), eq("overdue-queue"));
+        assertTrue(batches.getAllValues().stream().anyMatch(batch -> batch.getReminders().size() == 1
+                && batch.getReminders().get(0).getRentals().size() == 2));
+
+        //zapis na starcie przebiegu i po jedynej fali
+        ArgumentCaptor<JobCheckpoint> checkpoint = ArgumentCaptor.forClass(JobCheckpoint.class);
+        verify(jobCheckpointRepository, times(2)).save(checkpoint.capture());
+        assertEquals(5, checkpoint.getValue().getLastProcessedId());
+        assertTrue(checkpoint.getValue().isCompleted());
+    }
+
+    @Test
+    void scan_FailedChunk_NextInvocationContinuesFromCheckpoint() {
+        JobCheckpoint[] stored = new JobCheckpoint[1];
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenAnswer(invocation -> Optional.ofNullable(stored[0]));
+        when(jobCheckpointRepository.save(any(JobCheckpoint.class))).thenAnswer(invocation -> stored[0] = invocation.getArgument(0));
+        when(rentalRepository.findOverdueAfter(eq(0), eq(TODAY), any(Pageable.class)))
+                .thenReturn(List.of(row(1, "a@example.com"), row(2, "a@example.com")));
+        when(rentalRepository.findOverdueAfter(eq(2), eq(TODAY), any(Pageable.class)))
+                .thenReturn(List.of(row(3, "b@example.com"), row(4, "b@example.com")));
+        when(rentalRepository.findOverdueAfter(eq(4), eq(TODAY), any(Pageable.class)))
+                .thenReturn(List.of(row(5, "c@example.com")));
+        //porcja z wypożyczeniem 5 nie przechodzi za pierwszym razem
+        AtomicBoolean brokerDown = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            OverdueReminderBatchRabbit batch = invocation.getArgument(0);
+            if (batch.getReminders().get(0).getUserEmail().equals("c@example.com") && brokerDown.getAndSet(false)) {
+                throw new IllegalStateException("broker down");
+            }
+            return null;
+        }).when(rabbitMqService).send(any(), anyString());
+
+        overdueRentalScanner.scan(TODAY);
+
+        assertEquals(4, stored[0].getLastProcessedId());
+        assertFalse(stored[0].isCompleted());
+
+        overdueRentalScanner.scan(TODAY);
+
+        assertTrue(stored[0].isCompleted());
+        assertEquals(5, stored[0].getLastProcessedId());
+        verify(rentalRepository, times(1)).findOverdueAfter(eq(0), any(), any());
+        verify(rentalRepository, times(2)).findOverdueAfter(eq(4), any(), any());
+    }
+
+    @Test
+    void resumeIncompleteScan_RunsOnlyForTodaysUnfinishedCheckpoint() {
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenReturn(Optional.of(JobCheckpoint.builder()
+                .jobName(OverdueRentalScanner.JOB_NAME).runDate(LocalDate.now()).lastProcessedId(40).build()));
+
+        overdueRentalScanner.resumeIncompleteScan();
+
+        verify(schedulerLockService).runExclusively(eq(OverdueRentalScanner.JOB_NAME), any(), any());
+
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenReturn(Optional.of(JobCheckpoint.builder()
+                .jobName(OverdueRentalScanner.JOB_NAME).runDate(LocalDate.now()).completed(true).build()));
+
+        overdueRentalScanner.resumeIncompleteScan();
+
+        verifyNoMoreInteractions(schedulerLockService);
+    }
+
+    @Test
+    void scan_ResumesFromTodaysCheckpoint() {
+        JobCheckpoint checkpoint = JobCheckpoint.builder()
+                .jobName(OverdueRentalScanner.JOB_NAME).runDate(TODAY).lastProcessedId(40).build();
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+        when(rentalRepository.findOverdueAfter(eq(40), eq(TODAY), any(Pageable.class))).thenReturn(List.of());
+
+        overdueRentalScanner.scan(TODAY);
+
+        verify(rentalRepository, never()).findOverdueAfter(eq(0), any(), any());
+        verify(rabbitMqService, never()).send(any(), anyString());
+        assertTrue(checkpoint.isCompleted());
+    }
+
+    @Test
+    void scan_CompletedRunForToday_DoesNothing() {
+        JobCheckpoint checkpoint = JobCheckpoint.builder()
+                .jobName(OverdueRentalScanner.JOB_NAME).runDate(TODAY).lastProcessedId(40).completed(true).build();
+        when(jobCheckpointRepository.findById(OverdueRentalScanner.JOB_NAME)).thenReturn(Optional.of(checkpoint));
+
+        assertEquals(0, overdueRentalScanner.scan(TODAY));
+        verifyNoInteractions(rentalRepository);
+    }
+
+    private OverdueRentalRow row(int rentalId, String email) {
+        return new OverdueRentalRow(rentalId, email, "Book " + rentalId, TODAY.minusDays(3));
+    }
+}
@@ -31,6 +31,7 @@ import java.time.LocalDate;
 import java.util.*;
 
 import static org.hamcrest.Matchers.any;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -141,4 +142,39 @@ class SubscriptionControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNoContent());
     }
 
+    @Test
+    public void testBulkSubscribeAndUnsubscribe() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/sub/bulk")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryNames\": [\"FANTASY\", \"DRAMA\"]}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+
+        //ponowienie pomija już aktywne kategorie
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/sub/bulk")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryNames\": [\"FANTASY\", \"DRAMA\"]}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/v1/sub/bulk")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .param("bookCategories", "FANTASY", "DRAMA"))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        //po wypisaniu ta sama kategoria wraca jako ten sam wiersz, a nie duplikat
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/sub")
+                        .header(HttpHeaders.AUTHORIZATION, authToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"categoryName\": \"FANTASY\"}")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+        assertEquals(1, subscriptionRepository.findAll().stream()
+                .filter(subscription -> "FANTASY".equals(subscription.getCategoryName()))
+                .count());
+    }
 }
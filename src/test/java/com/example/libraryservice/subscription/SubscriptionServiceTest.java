@@ -1,7 +1,9 @@
 package com.example.libraryservice.subscription;
 
 import com.example.libraryservice.common.exception.model.SubscriptionException;
+import com.example.libraryservice.subscription.command.BulkSubscriptionCommand;
 import com.example.libraryservice.subscription.command.CreateSubscriptionCommand;
+import com.example.libraryservice.subscription.index.SubscriptionIndex;
 import com.example.libraryservice.subscription.model.Subscription;
 import com.example.libraryservice.subscription.model.SubscriptionDto;
 import com.example.libraryservice.user.UserRepository;
@@ -10,9 +12,11 @@ import com.example.libraryservice.user.model.User;
 import com.example.libraryservice.user.model.UserDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +26,8 @@ import java.awt.print.Pageable;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -39,6 +45,9 @@ class SubscriptionServiceTest {
     @Mock
     private SubscriptionRepository subscriptionRepository;
 
+    @Mock
+    private SubscriptionIndex subscriptionIndex;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -76,20 +85,13 @@ class SubscriptionServiceTest {
         String bookCategory = "TestCategory";
         String userEmail = "test@example.com";
 
-        User user = new User();
-        user.setEmail(userEmail);
-        user.setSubscriptions(new HashSet<>());
-
-        Subscription subscriptionToRemove = new Subscription();
-        subscriptionToRemove.setCategoryName(bookCategory);
-        user.getSubscriptions().add(subscriptionToRemove);
-
-        when(userRepository.findByEmail(userEmail)).thenReturn(Optional.of(user));
+        when(subscriptionRepository.deactivate(userEmail, List.of(bookCategory))).thenReturn(1);
 
         subscriptionService.unsubscribeToCategory(bookCategory);
 
-        assertTrue(user.getSubscriptions().isEmpty());
-        verify(userRepository, times(1)).save(user);
+        verify(subscriptionRepository, times(1)).deactivate(userEmail, List.of(bookCategory));
+        verify(subscriptionIndex).unsubscribe(userEmail, List.of(bookCategory));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -170,16 +172,144 @@ class SubscriptionServiceTest {
         command.setCategoryName("TestCategory");
         command.setCreationDate(LocalDate.now());
 
-        User user = new User();
-        user.setEmail("test@example.com");
-        user.setSubscriptions(new HashSet<>());
-
         Subscription existingSubscription = new Subscription();
         existingSubscription.setCategoryName("TestCategory");
-        user.getSubscriptions().add(existingSubscription);
+        existingSubscription.setActive(true);
 
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+        when(subscriptionRepository.findByUserEmailAndCategoryName("test@example.com", "TestCategory"))
+                .thenReturn(Optional.of(existingSubscription));
 
         assertThrows(SubscriptionException.class, () -> subscriptionService.createSubscriptionSave(command));
+        verify(subscriptionRepository, never()).save(any());
+    }
+
+    @Test
+    public void testCreateSubscriptionSave_InactiveSubscription_IsReactivated() {
+        CreateSubscriptionCommand command = new CreateSubscriptionCommand();
+        command.setCategoryName("TestCategory");
+
+        Subscription inactive = new Subscription();
+        inactive.setId(7);
+        inactive.setCategoryName("TestCategory");
+        inactive.setActive(false);
+        inactive.setCreationDate(LocalDate.now().minusYears(1));
+
+        when(subscriptionRepository.findByUserEmailAndCategoryName("test@example.com", "TestCategory"))
+                .thenReturn(Optional.of(inactive));
+        when(subscriptionRepository.save(inactive)).thenReturn(inactive);
+
+        Subscription result = subscriptionService.createSubscriptionSave(command);
+
+        assertEquals(7, result.getId());
+        assertTrue(result.isActive());
+        assertEquals(LocalDate.now(), result.getCreationDate());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testCreateSubscriptionSave_ConcurrentInsert_ReportsDuplicate() {
+        CreateSubscriptionCommand command = new CreateSubscriptionCommand();
+        command.setCategoryName("TestCategory");
+
+        User user = new User();
+        user.setEmail("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(subscriptionRepository.save(any(Subscription.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_subscription_user_category"));
+
+        assertThrows(SubscriptionException.class, () -> subscriptionService.createSubscriptionSave(command));
+        verify(subscriptionIndex, never()).subscribe(anyString(), anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSaveAll_CreatesMissingReactivatesInactiveAndSkipsActive() {
+        BulkSubscriptionCommand command = new BulkSubscriptionCommand();
+        command.setCategoryNames(List.of("FANTASY", "HORROR", "DRAMA", "FANTASY"));
+
+        Subscription active = new Subscription();
+        active.setCategoryName("FANTASY");
+        active.setActive(true);
+        Subscription inactive = new Subscription();
+        inactive.setCategoryName("HORROR");
+        inactive.setActive(false);
+        User user = new User();
+        user.setEmail("test@example.com");
+
+        when(subscriptionRepository.findByUserEmailAndCategoryNameIn(eq("test@example.com"), anyCollection()))
+                .thenReturn(List.of(active, inactive));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(subscriptionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<SubscriptionDto> result = subscriptionService.saveAll(command);
+
+        ArgumentCaptor<List<Subscription>> captor = ArgumentCaptor.forClass(List.class);
+        verify(subscriptionRepository).saveAll(captor.capture());
+        assertEquals(List.of("HORROR", "DRAMA"), captor.getValue().stream().map(Subscription::getCategoryName).toList());
+        assertTrue(captor.getValue().stream().allMatch(Subscription::isActive));
+        assertEquals(2, result.size());
+        verify(subscriptionIndex).subscribe("test@example.com", List.of("HORROR", "DRAMA"));
+    }
+
+    @Test
+    public void testUnsubscribeFromCategories_DeactivatesOnlyActiveWithSingleUpdate() {
+        Subscription fantasy = new Subscription();
+        fantasy.setCategoryName("FANTASY");
+        fantasy.setActive(true);
+        Subscription horror = new Subscription();
+        horror.setCategoryName("HORROR");
+        horror.setActive(false);
+        when(subscriptionRepository.findByUserEmailAndCategoryNameIn("test@example.com",
+                new LinkedHashSet<>(List.of("FANTASY", "HORROR", "DRAMA")))).thenReturn(List.of(fantasy, horror));
+        when(subscriptionRepository.deactivate(eq("test@example.com"), anyCollection())).thenReturn(1);
+
+        int unsubscribed = subscriptionService.unsubscribeFromCategories(List.of("FANTASY", "HORROR", "DRAMA", "FANTASY"));
+
+        assertEquals(1, unsubscribed);
+        verify(subscriptionRepository).deactivate("test@example.com", List.of("FANTASY"));
+        verify(subscriptionIndex).unsubscribe("test@example.com", List.of("FANTASY"));
+    }
+
+    @Test
+    public void testUnsubscribeFromCategories_NothingActive_LeavesIndexAlone() {
+        when(subscriptionRepository.findByUserEmailAndCategoryNameIn(eq("test@example.com"), anyCollection())).thenReturn(List.of());
+
+        assertEquals(0, subscriptionService.unsubscribeFromCategories(List.of("FANTASY")));
+
+        verify(subscriptionRepository, never()).deactivate(anyString(), anyCollection());
+        verifyNoInteractions(subscriptionIndex);
+    }
+
+    @Test
+    public void testCreateSubscriptionSave_ChecksDuplicatesInDatabaseNotIndex() {
+        CreateSubscriptionCommand command = new CreateSubscriptionCommand();
+        command.setCategoryName("TestCategory");
+
+        User user = new User();
+        user.setEmail("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(subscriptionIndex.isReady()).thenReturn(true);
+        when(subscriptionIndex.contains("TestCategory", "test@example.com")).thenReturn(true);
+        when(subscriptionRepository.save(any(Subscription.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        subscriptionService.createSubscriptionSave(command);
+
+        verify(subscriptionRepository).findByUserEmailAndCategoryName("test@example.com", "TestCategory");
+        verify(subscriptionRepository).save(any(Subscription.class));
+    }
+
+    @Test
+    public void testCreateSubscriptionSave_RegistersSubscriptionInIndex() {
+        CreateSubscriptionCommand command = new CreateSubscriptionCommand();
+        command.setCategoryName("TestCategory");
+
+        User user = new User();
+        user.setEmail("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        when(subscriptionRepository.save(any(Subscription.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        subscriptionService.createSubscriptionSave(command);
+
+        verify(subscriptionIndex).subscribe("test@example.com", List.of("TestCategory"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package com.example.libraryservice.subscription.index;
+
+import com.example.libraryservice.subscription.SubscriptionJdbcRepository;
+import com.example.libraryservice.subscription.SubscriptionRepository;
+import com.example.libraryservice.subscription.model.CategorySubscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SubscriptionIndexTest {
+
+    @Mock
+    private SubscriptionRepository subscriptionRepository;
+    @Mock
+    private SubscriptionJdbcRepository subscriptionJdbcRepository;
+    @Mock
+    private SubscriptionChangeRepository subscriptionChangeRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    //stan tabel widziany przez indeks: aktywne subskrypcje i zatwierdzone wpisy logu zmian
+    private final Map<String, Set<String>> activeCategoriesByEmail = new HashMap<>();
+    private final List<SubscriptionChange> committedChanges = new ArrayList<>();
+    private long nextChangeId = 1;
+    private SubscriptionIndex subscriptionIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        subscriptionIndex = index(60);
+        when(subscriptionChangeRepository.findMaxIdCreatedBefore(any())).thenReturn(Optional.empty());
+        when(subscriptionChangeRepository.save(any(SubscriptionChange.class))).thenAnswer(invocation -> {
+            SubscriptionChange change = invocation.getArgument(0);
+            change.setId(nextChangeId++);
+            committedChanges.add(change);
+            return change;
+        });
+        when(subscriptionChangeRepository.findAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            int pageSize = invocation.<Pageable>getArgument(1).getPageSize();
+            return committedChanges.stream()
+                    .filter(change -> change.getId() > after)
+                    .sorted(Comparator.comparing(SubscriptionChange::getId))
+                    .limit(pageSize)
+                    .toList();
+        });
+        when(subscriptionRepository.findActiveSubscribersByEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.stream()
+                    .flatMap(email -> activeCategoriesByEmail.getOrDefault(email, Set.of()).stream()
+                            .map(category -> new CategorySubscriber(category, email)))
+                    .toList();
+        });
+    }
+
+    private SubscriptionIndex index(long gapGraceSeconds) {
+        return new SubscriptionIndex(subscriptionRepository, subscriptionJdbcRepository, subscriptionChangeRepository, transactionManager, 5000, gapGraceSeconds, 24);
+    }
+
+    private void activeSubscribers(CategorySubscriber... subscribers) {
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(0);
+            Stream.of(subscribers).forEach(consumer);
+            return null;
+        }).when(subscriptionJdbcRepository).forEachActiveSubscriber(any());
+    }
+
+    //zmiana zapisana przez inny węzeł
+    private void commitRemoteChange(long id, String email, String... activeCategories) {
+        activeCategoriesByEmail.put(email, new HashSet<>(List.of(activeCategories)));
+        committedChanges.add(SubscriptionChange.builder().id(id).userEmail(email).createdAt(LocalDateTime.now()).build());
+    }
+
+    @Test
+    void testRebuild_LoadsActiveSubscriptionsAndBecomesReady() {
+        activeSubscribers(
+                new CategorySubscriber("FANTASY", "a@example.com"),
+                new CategorySubscriber("FANTASY", "b@example.com"),
+                new CategorySubscriber("HORROR", "a@example.com"));
+        assertFalse(subscriptionIndex.isReady());
+        assertFalse(subscriptionIndex.isCurrent());
+
+        subscriptionIndex.rebuild();
+
+        assertTrue(subscriptionIndex.isReady());
+        assertTrue(subscriptionIndex.isCurrent());
+        assertTrue(subscriptionIndex.contains("FANTASY", "b@example.com"));
+        assertFalse(subscriptionIndex.contains("HORROR", "b@example.com"));
+        assertEquals(2, subscriptionIndex.subscriberCount("FANTASY"));
+    }
+
+    @Test
+    void testSubscribeAndUnsubscribe_UpdateIndexAndRecordChange() {
+        activeSubscribers();
+        subscriptionIndex.rebuild();
+
+        subscriptionIndex.subscribe("c@example.com", List.of("DRAMA", "HORROR"));
+        assertTrue(subscriptionIndex.contains("DRAMA", "c@example.com"));
+        assertTrue(subscriptionIndex.contains("HORROR", "c@example.com"));
+        //jeden wpis w logu na wywołanie, niezależnie od liczby kategorii
+        assertEquals(1, committedChanges.size());
+
+        subscriptionIndex.unsubscribe("c@example.com", List.of("DRAMA"));
+        assertFalse(subscriptionIndex.contains("DRAMA", "c@example.com"));
+        assertEquals(0, subscriptionIndex.subscriberCount("DRAMA"));
+        assertEquals(2, committedChanges.size());
+
+        subscriptionIndex.unsubscribe("c@example.com", List.of());
+        assertEquals(2, committedChanges.size());
+    }
+
+    @Test
+    void testRebuild_ReplaysChangesCommittedWhileLoading() {
+        doAnswer(invocation -> {
+            Consumer<CategorySubscriber> consumer = invocation.getArgument(0);
+            consumer.accept(new CategorySubscriber("FANTASY", "a@example.com"));
+            //zmiany zatwierdzone w trakcie czytania strumienia
+            commitRemoteChange(1, "c@example.com", "HORROR");
+            commitRemoteChange(2, "b@example.com");
+            consumer.accept(new CategorySubscriber("FANTASY", "b@example.com"));
+            return null;
+        }).when(subscriptionJdbcRepository).forEachActiveSubscriber(any());
+
+        subscriptionIndex.rebuild();
+
+        assertTrue(subscriptionIndex.contains("HORROR", "c@example.com"));
+        assertFalse(subscriptionIndex.contains("FANTASY", "b@example.com"));
+        assertTrue(subscriptionIndex.contains("FANTASY", "a@example.com"));
+    }
+
+    @Test
+    void testRefresh_AppliesChangesFromOtherNodesWithoutRebuilding() {
+        activeSubscribers(
+                new CategorySubscriber("FANTASY", "a@example.com"));
+        subscriptionIndex.rebuild();
+
+        commitRemoteChange(1, "a@example.com", "HORROR");
+        commitRemoteChange(2, "b@example.com", "FANTASY");
+        subscriptionIndex.refresh();
+
+        assertFalse(subscriptionIndex.contains("FANTASY", "a@example.com"));
+        assertTrue(subscriptionIndex.contains("HORROR", "a@example.com"));
+        assertTrue(subscriptionIndex.contains("FANTASY", "b@example.com"));
+        verify(subscriptionJdbcRepository, times(1)).forEachActiveSubscriber(any());
+    }
+
+    @Test
+    void testRefresh_ChangeCommittedOutOfOrder_IsStillApplied() {
+        activeSubscribers();
+        subscriptionIndex.rebuild();
+
+        //wpis 2 zatwierdzony przed wpisem 1
+        commitRemoteChange(2, "b@example.com", "HORROR");
+        subscriptionIndex.refresh();
+        commitRemoteChange(1, "a@example.com", "FANTASY");
+        subscriptionIndex.refresh();
+
+        assertTrue(subscriptionIndex.contains("HORROR", "b@example.com"));
+        assertTrue(subscriptionIndex.contains("FANTASY", "a@example.com"));
+        assertTrue(subscriptionIndex.isCurrent());
+        verify(subscriptionJdbcRepository, times(1)).forEachActiveSubscriber(any());
+    }
+
+    @Test
+    void testRefresh_GapOlderThanGrace_IsSkipped() {
+        SubscriptionIndex noGrace = index(0);
+        activeSubscribers();
+        noGrace.rebuild();
+
+        //wpis 1 należał do wycofanej transakcji
+        commitRemoteChange(2, "b@example.com", "HORROR");
+        noGrace.refresh();
+        noGrace.refresh();
+
+        assertTrue(noGrace.contains("HORROR", "b@example.com"));
+        verify(subscriptionChangeRepository, atLeastOnce()).findAfter(eq(2L), any(Pageable.class));
+    }
+
+    @Test
+    void testRefresh_LocalChangeIsReconciledWithDatabase() {
+        activeSubscribers();
+        subscriptionIndex.rebuild();
+
+        //lokalna zmiana zastosowana po nowszym stanie z bazy (inny węzeł zdążył ją cofnąć)
+        subscriptionIndex.subscribe("c@example.com", List.of("DRAMA"));
+        activeCategoriesByEmail.put("c@example.com", Set.of());
+        subscriptionIndex.refresh();
+
+        assertFalse(subscriptionIndex.contains("DRAMA", "c@example.com"));
+    }
+
+    @Test
+    void testForEachSubscriber_VisitsRequestedCategoriesInOrder() {
+        activeSubscribers(
+                new CategorySubscriber("HORROR", "a@example.com"),
+                new CategorySubscriber("FANTASY", "b@example.com"),
+                new CategorySubscriber("FANTASY", "a@example.com"),
+                new CategorySubscriber("DRAMA", "d@example.com"));
+        subscriptionIndex.rebuild();
+
+        List<String> received = new ArrayList<>();
+        subscriptionIndex.forEachSubscriber(Set.of("HORROR", "FANTASY", "SCIENCE"),
+                subscriber -> received.add(subscriber.getCategoryName() + ":" + subscriber.getUserEmail()));
+
+        assertEquals(List.of("FANTASY:a@example.com", "FANTASY:b@example.com", "HORROR:a@example.com"), received);
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.libraryservice.user;
 
+import com.example.libraryservice.book.digest.DigestWindow;
 import com.example.libraryservice.common.enums.Role;
+import com.example.libraryservice.common.exception.model.UserException;
 import com.example.libraryservice.security.jwt.JwtService;
 import com.example.libraryservice.user.auth.AuthenticationRequest;
 import com.example.libraryservice.user.auth.AuthenticationResponse;
 import com.example.libraryservice.user.auth.RegisterRequest;
 import com.example.libraryservice.user.model.User;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -13,9 +16,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +41,9 @@ class UserServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private DigestWindow digestWindow;
+
     @InjectMocks
     private UserService userService;
 
@@ -44,6 +52,11 @@ class UserServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     public void testRegister() {
         RegisterRequest registerRequest = RegisterRequest.builder()
@@ -107,4 +120,44 @@ class UserServiceTest {
             assertEquals("USER_NOT_FOUND", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUpdateDigestSlot_SavesSlotOfLoggedInUser() {
+        User user = User.builder().email("johndoe@example.com").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("johndoe@example.com", null, null));
+        when(digestWindow.isValidSlot(3)).thenReturn(true);
+        when(userRepository.findByEmail("johndoe@example.com")).thenReturn(Optional.of(user));
+
+        assertEquals(3, userService.updateDigestSlot(3));
+        assertEquals(3, user.getDigestSlot());
+        assertNotNull(user.getDigestSlotChangedAt());
+        verify(userRepository).save(user);
+    }
+
+    @Test
+    public void testUpdateDigestSlot_SecondChangeInSameWindow_KeepsSlotInForce() {
+        User user = User.builder().email("johndoe@example.com").digestSlot(1).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("johndoe@example.com", null, null));
+        when(digestWindow.isValidSlot(anyInt())).thenReturn(true);
+        when(digestWindow.windowStart(any())).thenReturn(LocalDateTime.now().minusHours(1));
+        when(userRepository.findByEmail("johndoe@example.com")).thenReturn(Optional.of(user));
+
+        userService.updateDigestSlot(3);
+        userService.updateDigestSlot(5);
+
+        assertEquals(5, user.getDigestSlot());
+        assertEquals(1, user.getPreviousDigestSlot());
+    }
+
+    @Test
+    public void testUpdateDigestSlot_OutOfRange_ThrowsException() {
+        when(digestWindow.isValidSlot(42)).thenReturn(false);
+
+        UserException exception = assertThrows(UserException.class, () -> userService.updateDigestSlot(42));
+
+        assertEquals("DIGEST_SLOT_OUT_OF_RANGE", exception.getMessage());
+        verify(userRepository, never()).save(any());
+    }
+}